@@ -0,0 +1,78 @@
+package benchmarks;
+
+import engine.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * one evaluation of every entity, allocating (requestAnimationConfig) and into a reused config
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimationBenchmark {
+    @Param({"linear", "image", "rotate", "combined"})
+    public String type;
+
+    @Param({"10", "1000", "10000"})
+    public int entities;
+
+    private Animation[] animations;
+    private AnimationConfig out = new AnimationConfig();
+    private long pastMillSeconds = 0;
+
+    @Setup
+    public void setUp() {
+        BufferedImage image = Fixtures.disc(Fixtures.TILE_SIZE);
+        ArrayList<BufferedImage> frames = new ArrayList<BufferedImage>();
+
+        for (int i = 0; i < 6; i++) {
+            frames.add(Fixtures.disc(Fixtures.TILE_SIZE - i));
+        }
+
+        animations = new Animation[entities];
+
+        for (int i = 0; i < entities; i++) {
+            int x = (i % 100) * Fixtures.TILE_SIZE;
+            int y = (i / 100) * Fixtures.TILE_SIZE;
+
+            if (type.equals("linear")) {
+                animations[i] = new LinearAnimation(image, x, y, x + 100000, y, 8);
+            } else if (type.equals("image")) {
+                animations[i] = new ImageAnimation(frames, x, y, 1);
+            } else if (type.equals("rotate")) {
+                animations[i] = new RotateAnimation(image, x, y, 1);
+            } else {
+                animations[i] = new CombinedAnimation(new Animation[] {
+                        new LinearAnimation(image, x, y, x + 100000, y, 8),
+                        new RotateAnimation(image, x, y, 1)
+                });
+            }
+        }
+    }
+
+    @Benchmark
+    public void requestAnimationConfig(Blackhole blackhole) {
+        long past = pastMillSeconds++ % 10000;
+
+        for (Animation animation: animations) {
+            blackhole.consume(animation.requestAnimationConfig(past));
+        }
+    }
+
+    @Benchmark
+    public void evaluate(Blackhole blackhole) {
+        long past = pastMillSeconds++ % 10000;
+
+        for (Animation animation: animations) {
+            blackhole.consume(animation.evaluate(past, out));
+        }
+    }
+}
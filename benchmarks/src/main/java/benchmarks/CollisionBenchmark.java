@@ -0,0 +1,72 @@
+package benchmarks;
+
+import engine.CollisionSectionManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * broadphase and pixel tests of one tick: walls are static, entities move one pixel per invocation
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+    @Param({"20", "200", "1000"})
+    public int mapSize;
+
+    @Param({"10", "100", "1000"})
+    public int entities;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private CollisionSectionManager manager;
+    private Fixtures.Box[] movers;
+    private int step = 0;
+
+    @Setup
+    public void setUp() {
+        int tileSize = Fixtures.TILE_SIZE;
+        int size = mapSize * tileSize;
+        Random random = new Random(1);
+        BufferedImage wall = Fixtures.disc(tileSize);
+        BufferedImage bullet = Fixtures.disc(tileSize / 2);
+
+        manager = new CollisionSectionManager(size, size, 2 * tileSize);
+        manager.setParallel(parallel);
+
+        for (int row = 0; row < mapSize; row++) {
+            for (int col = 0; col < mapSize; col++) {
+                if (random.nextInt(3) == 0) {
+                    manager.addToSection(new Fixtures.Box(col * tileSize, row * tileSize, wall));
+                }
+            }
+        }
+
+        movers = new Fixtures.Box[entities];
+
+        for (int i = 0; i < entities; i++) {
+            movers[i] = new Fixtures.Box(random.nextInt(size - tileSize), random.nextInt(size - tileSize), bullet);
+            manager.updateSection(movers[i]);
+        }
+    }
+
+    @Benchmark
+    public void checkCollisions() {
+        // back and forth so the entities stay on the map
+        int dx = (step++ & 32) == 0 ? 1 : -1;
+
+        for (Fixtures.Box mover: movers) {
+            mover.x += dx;
+            manager.updateSection(mover);
+        }
+
+        manager.checkCollisions();
+    }
+}
@@ -0,0 +1,91 @@
+package benchmarks;
+
+import engine.CollisionComponent;
+import engine.Game;
+import engine.LevelData;
+import levelEditor.LevelGenerator;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/*
+ * deterministic inputs shared by the benchmarks
+ * */
+final class Fixtures {
+    static final String ASSETS = "/assets/";
+    static final int TILE_SIZE = 40;
+
+    private Fixtures() {}
+
+    // random map from the stress generator, about a third of the cells are collisional
+    static LevelData level(int rows, int cols, long seed) {
+        LevelGenerator generator = new LevelGenerator();
+
+        generator.setDensities(0.25, 0.05, 0.01, 0.02);
+        generator.setSeed(seed);
+
+        return generator.generate(rows, cols);
+    }
+
+    static Game game(int mapSize) {
+        Game game = new Game(ASSETS, TILE_SIZE, true);
+
+        game.loadLevel(level(mapSize, mapSize, 1));
+
+        return game;
+    }
+
+    // a filled circle, so pixel tests have both hits and misses near the corners
+    static BufferedImage disc(int size) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+
+        graphics.setColor(Color.WHITE);
+        graphics.fillOval(0, 0, size, size);
+        graphics.dispose();
+
+        return image;
+    }
+
+    static class Box implements CollisionComponent {
+        int x;
+        int y;
+        BufferedImage image;
+
+        Box(int x, int y, BufferedImage image) {
+            this.x = x;
+            this.y = y;
+            this.image = image;
+        }
+
+        @Override
+        public int getLeft() {
+            return x;
+        }
+
+        @Override
+        public int getRight() {
+            return x + image.getWidth();
+        }
+
+        @Override
+        public int getTop() {
+            return y;
+        }
+
+        @Override
+        public int getBottom() {
+            return y + image.getHeight();
+        }
+
+        @Override
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        @Override
+        public void inCollision(CollisionComponent component) {
+            // only the detection is measured
+        }
+    }
+}
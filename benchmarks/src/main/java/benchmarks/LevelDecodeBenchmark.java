@@ -0,0 +1,85 @@
+package benchmarks;
+
+import engine.LevelData;
+import engine.LevelFile;
+import engine.TileData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * level file decoding (random and uniform maps, legacy serialization) and TileData decoding
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelDecodeBenchmark {
+    @Param({"20", "200", "1000"})
+    public int mapSize;
+
+    private byte[] noisy;
+    private byte[] uniform;
+    private byte[] legacy;
+    private int[] cells;
+
+    @Setup
+    public void setUp() throws IOException {
+        LevelData level = Fixtures.level(mapSize, mapSize, 1);
+
+        // the encoder picks raw or run length, whichever is smaller
+        noisy = bytes(LevelFile.encode(level));
+        uniform = bytes(LevelFile.encode(new LevelData(mapSize, mapSize)));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bytes);
+        oos.writeObject(level.toRows());
+        oos.close();
+        legacy = bytes.toByteArray();
+
+        cells = new int[mapSize * mapSize];
+
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = level.get(i / mapSize, i % mapSize);
+        }
+    }
+
+    @Benchmark
+    public LevelData decodeNoisy() throws IOException {
+        return LevelFile.read(ByteBuffer.wrap(noisy));
+    }
+
+    @Benchmark
+    public LevelData decodeUniform() throws IOException {
+        return LevelFile.read(ByteBuffer.wrap(uniform));
+    }
+
+    @Benchmark
+    public LevelData decodeLegacy() throws IOException {
+        return LevelFile.read(ByteBuffer.wrap(legacy));
+    }
+
+    @Benchmark
+    public void decodeTileData(Blackhole blackhole) {
+        for (int cell: cells) {
+            TileData tileData = new TileData(cell);
+
+            blackhole.consume(tileData.imageIndex);
+            blackhole.consume(tileData.isCollisional);
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        return bytes;
+    }
+}
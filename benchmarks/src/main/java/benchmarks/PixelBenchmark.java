@@ -0,0 +1,60 @@
+package benchmarks;
+
+import engine.CollisionPairCache;
+import engine.CollisionSectionManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * narrowphase on overlapping pairs at random offsets, with and without the pair cache
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PixelBenchmark {
+    @Param({"16", "40", "128"})
+    public int imageSize;
+
+    @Param({"64", "4096"})
+    public int pairs;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private CollisionSectionManager manager;
+    private Fixtures.Box[] first;
+    private Fixtures.Box[] second;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        BufferedImage image = Fixtures.disc(imageSize);
+
+        manager = new CollisionSectionManager(imageSize * 4, imageSize * 4, imageSize);
+        manager.setPairCache(new CollisionPairCache(cached ? 4096 : 0));
+
+        first = new Fixtures.Box[pairs];
+        second = new Fixtures.Box[pairs];
+
+        for (int i = 0; i < pairs; i++) {
+            first[i] = new Fixtures.Box(imageSize, imageSize, image);
+            second[i] = new Fixtures.Box(imageSize + random.nextInt(2 * imageSize) - imageSize + 1,
+                    imageSize + random.nextInt(2 * imageSize) - imageSize + 1, image);
+        }
+    }
+
+    @Benchmark
+    public boolean checkComponentPixels() {
+        int i = next;
+        next = (i + 1) % pairs;
+
+        return manager.checkComponentPixels(first[i], second[i]);
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import engine.Game;
+import engine.LinearAnimation;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * full frame into an offscreen image: static layer, characters and moving bullets
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"20", "200", "1000"})
+    public int mapSize;
+
+    @Param({"0", "100", "1000"})
+    public int entities;
+
+    private Game game;
+    private BufferedImage target;
+
+    @Setup
+    public void setUp() {
+        game = Fixtures.game(mapSize);
+
+        BufferedImage bullet = game.loadImage("animation/bullet.png", 45, true);
+        int view = Math.min(mapSize, 20) * Fixtures.TILE_SIZE;
+
+        for (int i = 0; i < entities; i++) {
+            int y = (i * 7) % view;
+
+            game.addAnimation(new LinearAnimation(bullet, 0, y, view, y, 0.1));
+        }
+
+        game.tick();
+        target = game.renderFrame((BufferedImage)null);
+    }
+
+    @Benchmark
+    public BufferedImage renderFrame() {
+        return game.renderFrame(target);
+    }
+
+    @Benchmark
+    public BufferedImage tickAndRender() {
+        game.tick();
+
+        return game.renderFrame(target);
+    }
+
+    @TearDown
+    public void tearDown() {
+        game.dispose();
+    }
+}
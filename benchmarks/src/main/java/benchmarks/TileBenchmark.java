@@ -0,0 +1,75 @@
+package benchmarks;
+
+import engine.Game;
+import engine.Tile;
+import engine.TileWorld;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Game.getTile inside the loaded view, and after jumping the view to a random cell of the map:
+ * the jump retains the chunks around the new view and evicts the rest, so the second benchmark
+ * measures chunk streaming (load, evict and lookup) instead of a warm array read.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    // the default view margin of Game
+    private static final int VIEW_MARGIN = 8;
+
+    @Param({"20", "200", "2000"})
+    public int mapSize;
+
+    private Game game;
+    private TileWorld world;
+    private int view;
+    private int[] viewCells = new int[LOOKUPS];
+    private int[] mapCells = new int[LOOKUPS];
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        view = Math.min(mapSize, 20);
+        game = Fixtures.game(mapSize);
+        world = game.getWorld();
+
+        for (int i = 0; i < LOOKUPS; i++) {
+            viewCells[i] = random.nextInt(view) * mapSize + random.nextInt(view);
+            mapCells[i] = random.nextInt(mapSize) * mapSize + random.nextInt(mapSize);
+        }
+    }
+
+    @Benchmark
+    public Tile getTileInView() {
+        int cell = viewCells[next++ & (LOOKUPS - 1)];
+
+        return game.getTile(cell / mapSize, cell % mapSize);
+    }
+
+    @Benchmark
+    public Tile getTileAnywhere() {
+        int cell = mapCells[next++ & (LOOKUPS - 1)];
+        int row = cell / mapSize;
+        int col = cell % mapSize;
+
+        // the range Game.updateView retains, with the view centred on the cell
+        world.retain(row - view / 2 - VIEW_MARGIN, col - view / 2 - VIEW_MARGIN,
+                row + view / 2 + VIEW_MARGIN, col + view / 2 + VIEW_MARGIN);
+
+        return game.getTile(row, col);
+    }
+
+    @TearDown
+    public void tearDown() {
+        game.dispose();
+    }
+}
@@ -5,14 +5,10 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.event.KeyAdapter;
-import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 
 public class Main {
     public static void main(String[] args) {
@@ -84,9 +80,9 @@ class GameLoader extends JPanel {
 class GameImpl extends Game {
     private ArrayList<Tile> coins = new ArrayList<Tile>();
     private int currentLevel = 0;
-    private ArrayList<Timer> timers = new ArrayList<Timer>();
+    private ArrayList<TickScheduler.Task> tasks = new ArrayList<TickScheduler.Task>();
     private BufferedImage tips;
-    private KeyAdapter reloadKeyAdapter;
+    private InputAdapter reloadListener;
 
     public GameImpl(String assetsPath, int tileSize) {
         super(assetsPath, tileSize);
@@ -119,10 +115,7 @@ class GameImpl extends Game {
             final int x = degree == 45 ? 760 : 0;
             final int y = 0;
 
-            Timer timer = new Timer();
-            timers.add(timer);
-
-            timer.schedule(new TimerTask() {
+            tasks.add(game.scheduleRepeating(new Runnable() {
                 @Override
                 public void run() {
                     game.addAnimation(new LinearAnimation(game.loadImage("animation/bullet.png", degree, true), tile.getLeft(), tile.getTop(), x, y, 8) {
@@ -146,7 +139,7 @@ class GameImpl extends Game {
                         }
                     });
                 }
-            }, 0, 400);
+            }, 0, 400));
         }
 
         // make boxes movable
@@ -190,10 +183,10 @@ class GameImpl extends Game {
         }
 
         // add reload listener
-        reloadKeyAdapter = new KeyAdapter() {
+        reloadListener = new InputAdapter() {
             @Override
-            public void keyReleased(KeyEvent keyEvent) {
-                if (keyEvent.getKeyChar() == 'r') {
+            public void keyReleased(char keyChar, int keyCode) {
+                if (keyChar == 'r') {
                     unload();
 
                     if (loadLevel(currentLevel)) {
@@ -204,18 +197,18 @@ class GameImpl extends Game {
             }
         };
 
-        this.addKeyListener(reloadKeyAdapter);
+        this.addInputListener(reloadListener);
     }
 
     public void unload() {
-        removeKeyListener(reloadKeyAdapter);
+        removeInputListener(reloadListener);
 
-        // clear timers
-        for (Timer timer: timers) {
-            timer.cancel();
+        // cancel cannons
+        for (TickScheduler.Task task: tasks) {
+            task.cancel();
         }
 
-        timers.clear();
+        tasks.clear();
     }
 
     public void showTips(String tips) {
@@ -8,33 +8,68 @@ public abstract class Animation implements CollisionComponent {
     protected AnimationConfig current;
     protected double speed;
 
-    private long startTimestamp;
+    private static final GameClock SYSTEM_CLOCK = new SystemClock();
+
+    private GameClock clock = SYSTEM_CLOCK;
+    private long startNanos;
+
+    // current and next alternate between these, so the previous frame stays readable after an update
+    private AnimationConfig[] buffers = new AnimationConfig[2];
 
     public Animation(AnimationConfig from, double speed) {
         this.from = from;
-        this.current = new AnimationConfig(from);
+        this.buffers[0] = new AnimationConfig(from);
+        this.buffers[1] = new AnimationConfig(from);
+        this.current = buffers[0];
         this.speed = speed;
     }
 
-    public abstract AnimationConfig requestAnimationConfig(long pastMillSeconds);
+    /*
+     * write the config at pastMillSeconds into out, returns false once the animation is over
+     * implementations start from out.set(current) and must not allocate
+     * */
+    public abstract boolean evaluate(long pastMillSeconds, AnimationConfig out);
+
+    public AnimationConfig requestAnimationConfig(long pastMillSeconds) {
+        AnimationConfig config = new AnimationConfig();
+
+        return evaluate(pastMillSeconds, config) ? config : null;
+    }
 
     public void start() {
-        startTimestamp = System.currentTimeMillis();
+        start(SYSTEM_CLOCK);
     }
 
-    public void render(Graphics graphics) {
-        long currentTimestamp = System.currentTimeMillis();
-        long pastMillSeconds = currentTimestamp - startTimestamp;
+    // the animation is evaluated against this clock from now on
+    public void start(GameClock clock) {
+        this.clock = clock;
+        this.startNanos = clock.nanoTime();
+    }
 
-        current = this.requestAnimationConfig(pastMillSeconds);
+    // continue on another clock, the time already elapsed is kept
+    public void rebase(GameClock clock) {
+        long elapsedNanos = this.clock.nanoTime() - startNanos;
+
+        this.clock = clock;
+        this.startNanos = clock.nanoTime() - elapsedNanos;
+    }
 
+    public void update() {
+        long pastMillSeconds = (clock.nanoTime() - startNanos) / 1000000L;
+
+        AnimationConfig next = current == buffers[0] ? buffers[1] : buffers[0];
+
+        current = this.evaluate(pastMillSeconds, next) ? next : null;
+    }
+
+    public void render(Graphics graphics) {
         if (current == null) {
             return;
         }
 
-        graphics.drawImage(current.getImage(), current.getX(), current.getY(),
+        TextureAtlas.drawImage(graphics, current.getImage(), current.getX(), current.getY(),
                 current.getX() + current.getWidth(), current.getY() + current.getHeight(),
-                0, 0, current.getWidth(), current.getHeight(), null);
+                0, 0, current.getWidth(), current.getHeight());
     }
 
     @Override
@@ -62,6 +97,11 @@ public abstract class Animation implements CollisionComponent {
         return current == null ? null : current.getImage();
     }
 
+    @Override
+    public CollisionMask getMask() {
+        return current == null ? null : current.getMask();
+    }
+
     @Override
     public void inCollision(CollisionComponent component) {
         // do nothing
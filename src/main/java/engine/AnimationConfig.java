@@ -4,6 +4,7 @@ import java.awt.image.BufferedImage;
 
 public class AnimationConfig {
     private BufferedImage image;
+    private CollisionMask mask;
     private int x;
     private int y;
     private int width;
@@ -15,6 +16,9 @@ public class AnimationConfig {
     private boolean widthChanged = false;
     private boolean heightChanged = false;
 
+    public AnimationConfig() {
+    }
+
     public AnimationConfig(BufferedImage image, int x, int y, int width, int height) {
         this.image = image;
         this.x = x;
@@ -24,19 +28,40 @@ public class AnimationConfig {
     }
 
     public AnimationConfig(AnimationConfig animationConfig) {
-        if (animationConfig != null) {
-            this.image = animationConfig.image;
-            this.x = animationConfig.x;
-            this.y = animationConfig.y;
-            this.width = animationConfig.width;
-            this.height = animationConfig.height;
-
-            imageChanged = animationConfig.imageChanged;
-            xChanged = animationConfig.xChanged;
-            yChanged = animationConfig.yChanged;
-            widthChanged = animationConfig.widthChanged;
-            heightChanged = animationConfig.heightChanged;
+        set(animationConfig);
+    }
+
+    // copy values and change flags in place, null resets everything
+    public void set(AnimationConfig animationConfig) {
+        if (animationConfig == null) {
+            this.image = null;
+            this.mask = null;
+            this.x = 0;
+            this.y = 0;
+            this.width = 0;
+            this.height = 0;
+
+            imageChanged = false;
+            xChanged = false;
+            yChanged = false;
+            widthChanged = false;
+            heightChanged = false;
+
+            return;
         }
+
+        this.image = animationConfig.image;
+        this.mask = animationConfig.mask;
+        this.x = animationConfig.x;
+        this.y = animationConfig.y;
+        this.width = animationConfig.width;
+        this.height = animationConfig.height;
+
+        imageChanged = animationConfig.imageChanged;
+        xChanged = animationConfig.xChanged;
+        yChanged = animationConfig.yChanged;
+        widthChanged = animationConfig.widthChanged;
+        heightChanged = animationConfig.heightChanged;
     }
 
     public void merge(AnimationConfig config) {
@@ -45,7 +70,7 @@ public class AnimationConfig {
         }
 
         if (config.imageChanged) {
-            setImage(config.image);
+            setImage(config.image, config.mask);
         }
 
         if (config.xChanged) {
@@ -69,6 +94,15 @@ public class AnimationConfig {
         return image;
     }
 
+    // the precomputed mask of the image, or the cached one
+    public CollisionMask getMask() {
+        if (mask != null || image == null) {
+            return mask;
+        }
+
+        return CollisionMask.get(image);
+    }
+
     public int getX() {
         return x;
     }
@@ -86,8 +120,14 @@ public class AnimationConfig {
     }
 
     public void setImage(BufferedImage image) {
+        setImage(image, null);
+    }
+
+    // mask must be the mask of image, null looks it up on use
+    public void setImage(BufferedImage image, CollisionMask mask) {
         this.imageChanged = true;
         this.image = image;
+        this.mask = mask;
     }
 
     public void setX(int x) {
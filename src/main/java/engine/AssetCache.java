@@ -0,0 +1,166 @@
+package engine;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * decoded images keyed by (path, degree, resize)
+ *
+ * least recently used images are evicted once their estimated size exceeds the byte budget,
+ * evicted images are decoded again on their next request.
+ * memory owned elsewhere, like texture atlas pages, is charged as pinned bytes that count against
+ * the budget but are never evicted, atlas images themselves are views into those pages and cost nothing.
+ * */
+public class AssetCache {
+    public static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+
+    private long budgetBytes;
+    private long usedBytes = 0;
+    private long pinnedBytes = 0;
+    private LinkedHashMap<Key, BufferedImage> images = new LinkedHashMap<Key, BufferedImage>(64, 0.75f, true);
+
+    // statistics
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public AssetCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public AssetCache() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    synchronized public BufferedImage get(String path, int degree, boolean needResize) {
+        BufferedImage image = images.get(new Key(path, degree, needResize));
+
+        if (image == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+
+        return image;
+    }
+
+    synchronized public void put(String path, int degree, boolean needResize, BufferedImage image) {
+        if (image == null) {
+            return;
+        }
+
+        BufferedImage previous = images.put(new Key(path, degree, needResize), image);
+
+        if (previous != null) {
+            usedBytes -= sizeOf(previous);
+        }
+
+        usedBytes += sizeOf(image);
+        trim();
+    }
+
+    // reserve bytes outside of the cached images, false when that alone would exceed the budget
+    synchronized public boolean charge(long bytes) {
+        if (pinnedBytes + bytes > budgetBytes) {
+            return false;
+        }
+
+        pinnedBytes += bytes;
+        usedBytes += bytes;
+        trim();
+
+        return true;
+    }
+
+    synchronized public void release(long bytes) {
+        pinnedBytes -= bytes;
+        usedBytes -= bytes;
+    }
+
+    synchronized public void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        trim();
+    }
+
+    synchronized public void clear() {
+        images.clear();
+        usedBytes = pinnedBytes;
+    }
+
+    synchronized public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    synchronized public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    synchronized public long getPinnedBytes() {
+        return pinnedBytes;
+    }
+
+    synchronized public int getSize() {
+        return images.size();
+    }
+
+    synchronized public long getHits() {
+        return hits;
+    }
+
+    synchronized public long getMisses() {
+        return misses;
+    }
+
+    synchronized public long getEvictions() {
+        return evictions;
+    }
+
+    // the most recent image always stays, even when it alone is over budget
+    private void trim() {
+        Iterator<Map.Entry<Key, BufferedImage>> iterator = images.entrySet().iterator();
+
+        while (usedBytes > budgetBytes && images.size() > 1 && iterator.hasNext()) {
+            usedBytes -= sizeOf(iterator.next().getValue());
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        if (image instanceof AtlasImage) {
+            return 0;
+        }
+
+        return (long)image.getWidth() * image.getHeight() * Math.max(1, image.getColorModel().getPixelSize() / 8);
+    }
+
+    private static class Key {
+        String path;
+        int degree;
+        boolean needResize;
+
+        Key(String path, int degree, boolean needResize) {
+            this.path = path;
+            this.degree = degree % 360;
+            this.needResize = needResize;
+        }
+
+        @Override
+        public int hashCode() {
+            return (path.hashCode() * 31 + degree) * 2 + (needResize ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key)object;
+
+            return degree == key.degree && needResize == key.needResize && path.equals(key.path);
+        }
+    }
+}
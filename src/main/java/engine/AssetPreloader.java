@@ -0,0 +1,204 @@
+package engine;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * decodes the assets listed in <assets>/manifest.txt on a worker pool
+ *
+ * every line is "<path> [resize] [rotate=<degree>] [critical]", the game only waits for critical entries
+ * before building the first level, everything else keeps loading in the background.
+ * without a manifest the map images are discovered once and treated as critical.
+ * finished entries leave the preloader once they are in the asset cache, so the cache budget alone decides
+ * how long they stay.
+ * */
+public class AssetPreloader {
+    public static final String MANIFEST = "manifest.txt";
+
+    private Game game;
+    private ExecutorService executor;
+    private ConcurrentHashMap<String, Future<BufferedImage>> pending =
+            new ConcurrentHashMap<String, Future<BufferedImage>>();
+    private ArrayList<Future<BufferedImage>> critical = new ArrayList<Future<BufferedImage>>();
+
+    public AssetPreloader(Game game, int threads) {
+        this.game = game;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+            private AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "asset-preloader-" + count.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+
+    public AssetPreloader(Game game) {
+        this(game, Runtime.getRuntime().availableProcessors());
+    }
+
+    // schedule every entry of the manifest, the pool shuts down once they are done
+    public void start() {
+        ArrayList<Entry> entries = readManifest();
+
+        if (entries == null) {
+            entries = discover();
+        }
+
+        for (Entry entry: entries) {
+            submit(entry);
+        }
+
+        executor.shutdown();
+    }
+
+    public void awaitCritical() {
+        for (Future<BufferedImage> future: critical) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                return;
+            } catch (ExecutionException e) {
+                System.out.println("preload failed: " + e.getCause());
+            }
+        }
+
+        critical.clear();
+    }
+
+    // result of an entry still being decoded, null when it is not pending or failed
+    public BufferedImage await(String path, int degree, boolean needResize) {
+        Future<BufferedImage> future = pending.get(Game.assetKey(path, degree, needResize));
+
+        if (future == null) {
+            return null;
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    // the task is registered before it can run, so its own removal always finds it
+    private void submit(final Entry entry) {
+        final String key = Game.assetKey(entry.path, entry.degree, entry.needResize);
+        FutureTask<BufferedImage> task = new FutureTask<BufferedImage>(new Callable<BufferedImage>() {
+            @Override
+            public BufferedImage call() {
+                BufferedImage image = game.atlasImage(entry.path, entry.degree, entry.needResize);
+
+                game.getAssetCache().put(entry.path, entry.degree, entry.needResize, image);
+
+                return image;
+            }
+        }) {
+            @Override
+            protected void done() {
+                pending.remove(key, this);
+            }
+        };
+
+        if (pending.putIfAbsent(key, task) != null) {
+            return;
+        }
+
+        if (entry.critical) {
+            critical.add(task);
+        }
+
+        executor.execute(task);
+    }
+
+    private ArrayList<Entry> readManifest() {
+        InputStream is = getClass().getResourceAsStream(game.getAssetsPath() + MANIFEST);
+
+        if (is == null) {
+            return null;
+        }
+
+        ArrayList<Entry> entries = new ArrayList<Entry>();
+
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] tokens = line.split("\\s+");
+                Entry entry = new Entry(tokens[0]);
+
+                for (int i = 1; i < tokens.length; i++) {
+                    if (tokens[i].equals("resize")) {
+                        entry.needResize = true;
+                    } else if (tokens[i].equals("critical")) {
+                        entry.critical = true;
+                    } else if (tokens[i].startsWith("rotate=")) {
+                        entry.degree = Integer.parseInt(tokens[i].substring("rotate=".length()));
+                    }
+                }
+
+                entries.add(entry);
+            }
+
+            reader.close();
+        } catch (IOException e) {
+            System.out.println("read asset manifest failed");
+        } catch (NumberFormatException e) {
+            System.out.println("invalid asset manifest");
+        }
+
+        return entries;
+    }
+
+    private ArrayList<Entry> discover() {
+        ArrayList<Entry> entries = new ArrayList<Entry>();
+        int index = 0;
+
+        while (getClass().getResource(game.getAssetsPath() + "map/" + index + ".png") != null) {
+            Entry entry = new Entry("map/" + index++ + ".png");
+            entry.needResize = true;
+            entry.critical = true;
+
+            entries.add(entry);
+        }
+
+        return entries;
+    }
+
+    private static class Entry {
+        String path;
+        int degree = 0;
+        boolean needResize = false;
+        boolean critical = false;
+
+        Entry(String path) {
+            this.path = path;
+        }
+    }
+}
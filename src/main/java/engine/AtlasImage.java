@@ -0,0 +1,36 @@
+package engine;
+
+import java.awt.image.BufferedImage;
+
+/*
+ * image packed into a texture atlas page
+ *
+ * the image is a view of its region of the page, so the sprite pixels exist once: reads like
+ * collision masks go through the shared raster and rendering through TextureAtlas.drawImage,
+ * which draws from the page itself so java2d keeps it accelerated.
+ * */
+public class AtlasImage extends BufferedImage {
+    private BufferedImage page;
+    private int pageX;
+    private int pageY;
+
+    AtlasImage(BufferedImage page, int pageX, int pageY, int width, int height) {
+        super(page.getColorModel(), page.getRaster().createWritableChild(pageX, pageY, width, height, 0, 0, null),
+                page.isAlphaPremultiplied(), null);
+
+        this.page = page;
+        this.pageX = pageX;
+        this.pageY = pageY;
+    }
+    public BufferedImage getPage() {
+        return page;
+    }
+
+    public int getPageX() {
+        return pageX;
+    }
+
+    public int getPageY() {
+        return pageY;
+    }
+}
@@ -0,0 +1,10 @@
+package engine;
+
+final class Bits {
+    private Bits() {}
+
+    // smallest power of two >= value, at least 2, so value - 1 can serve as an index mask
+    static int ceilPowerOfTwo(int value) {
+        return Integer.highestOneBit(Math.max(2, value) - 1) << 1;
+    }
+}
@@ -0,0 +1,64 @@
+package engine;
+
+/*
+ * viewport into the world, in pixels
+ * */
+public class Camera {
+    private int x = 0;
+    private int y = 0;
+    private int width;
+    private int height;
+
+    public Camera(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    // center on the given bounds without leaving the world, returns true when the camera moved
+    public boolean follow(int left, int top, int right, int bottom, int worldWidth, int worldHeight) {
+        int nextX = clamp((left + right - width) / 2, worldWidth - width);
+        int nextY = clamp((top + bottom - height) / 2, worldHeight - height);
+
+        return moveTo(nextX, nextY);
+    }
+
+    public boolean moveTo(int x, int y) {
+        if (this.x == x && this.y == y) {
+            return false;
+        }
+
+        this.x = x;
+        this.y = y;
+
+        return true;
+    }
+
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean intersects(int left, int top, int right, int bottom) {
+        return left < x + width && x < right && top < y + height && y < bottom;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+}
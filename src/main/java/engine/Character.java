@@ -1,13 +1,7 @@
 package engine;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
-import java.awt.event.KeyAdapter;
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,7 +11,7 @@ public class Character implements CollisionComponent {
     private Map<String, ArrayList<BufferedImage>> images = new HashMap<String, ArrayList<BufferedImage>>();
 
     // controller
-    private KeyListener keyListener;
+    private InputAdapter inputListener;
     private char up;
     private char down;
     private char left;
@@ -29,6 +23,9 @@ public class Character implements CollisionComponent {
     private ArrayList<BufferedImage> renderingImages;
     private BufferedImage renderedImage;
     private long lastMovedTimestamp = 0;
+    private BufferedImage lastRenderedImage;
+    private int lastLeft;
+    private int lastTop;
 
     public Character(Game game, String imageFolder) {
         this.game = game;
@@ -41,17 +38,13 @@ public class Character implements CollisionComponent {
             ArrayList<BufferedImage> subImages = new ArrayList<BufferedImage>();
 
             while (true) {
-                try {
-                    InputStream is = getClass().getResourceAsStream(game.getAssetsPath() + imageFolder + direction + "_" + String.valueOf(index++) + ".png");
+                BufferedImage image = game.loadImage(imageFolder + direction + "_" + String.valueOf(index++) + ".png", 0, false);
 
-                    if (is == null) {
-                        break;
-                    }
-
-                    subImages.add(ImageIO.read(is));
-                } catch (IOException e) {
+                if (image == null) {
                     break;
                 }
+
+                subImages.add(image);
             }
 
             images.put(direction, subImages);
@@ -59,23 +52,31 @@ public class Character implements CollisionComponent {
 
         // set controller
         // add event listeners
-        keyListener = new KeyAdapter() {
+        inputListener = new InputAdapter() {
             @Override
-            public void keyPressed(KeyEvent keyEvent) {
-                move(keyEvent.getKeyChar());
+            public void keyPressed(char keyChar, int keyCode) {
+                // a push swaps two tiles, keep it atomic to the paint thread
+                synchronized (game) {
+                    move(keyChar);
+                }
             }
         };
 
         game.setFocusable(true);
         game.requestFocus();
-        game.addKeyListener(keyListener);
+        game.addInputListener(inputListener);
 
         // default rendering image
         renderingImages = images.get("down");
     }
 
     public void dispose() {
-        game.removeKeyListener(keyListener);
+        game.removeInputListener(inputListener);
+    }
+
+    // the game clock was replaced, keep the time since the last move
+    void shiftTime(long deltaMillis) {
+        lastMovedTimestamp += deltaMillis;
     }
 
     public void bindKeys(char up, char down, char left, char right) {
@@ -93,28 +94,49 @@ public class Character implements CollisionComponent {
         this.col = col;
     }
 
-    public void render(Graphics graphics) {
+    public void update() {
         if (renderingImages.isEmpty()) {
             return;
         }
 
-        long timestamp = System.currentTimeMillis();
+        long timestamp = game.getClock().nanoTime() / 1000000L;
         long pastMillSeconds = (timestamp - lastMovedTimestamp);
 
         // determine rendering image
-        int tileSize = game.getTileSize();
         int frames = renderingImages.size();
         double interval = 100;
         int index = (int)Math.floor((pastMillSeconds / interval) % 1000.0);
 
         renderedImage = renderingImages.get(index % frames);
 
+        // repaint the previous and the current position when the frame changed
+        if (renderedImage != lastRenderedImage || getLeft() != lastLeft || getTop() != lastTop) {
+            int tileSize = game.getTileSize();
+
+            if (lastRenderedImage != null) {
+                game.markDirty(lastLeft, lastTop, tileSize, tileSize);
+            }
+
+            game.markDirty(getLeft(), getTop(), tileSize, tileSize);
+
+            lastRenderedImage = renderedImage;
+            lastLeft = getLeft();
+            lastTop = getTop();
+        }
+    }
+
+    public void render(Graphics graphics) {
+        if (renderedImage == null) {
+            return;
+        }
+
+        int tileSize = game.getTileSize();
+
         // animation at current position
-        graphics.drawImage(renderedImage, getLeft(), getTop(),
+        TextureAtlas.drawImage(graphics, renderedImage, getLeft(), getTop(),
                 getRight(), getBottom(),
                 0, 0,
-                tileSize, tileSize,
-                null);
+                tileSize, tileSize);
     }
 
     private void move(char direction) {
@@ -155,7 +177,7 @@ public class Character implements CollisionComponent {
         if (nextTile != null && !nextTile.isCollisional()) {
             row = nextRow;
             col = nextCol;
-            lastMovedTimestamp = System.currentTimeMillis();
+            lastMovedTimestamp = game.getClock().nanoTime() / 1000000L;
         }
     }
 
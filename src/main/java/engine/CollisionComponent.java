@@ -10,5 +10,12 @@ public interface CollisionComponent {
 
     BufferedImage getImage();
 
+    // mask of getImage(), components holding a precomputed one return it instead of the cache lookup
+    default CollisionMask getMask() {
+        BufferedImage image = getImage();
+
+        return image == null ? null : CollisionMask.get(image);
+    }
+
     void inCollision(CollisionComponent component);
 }
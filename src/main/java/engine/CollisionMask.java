@@ -0,0 +1,193 @@
+package engine;
+
+import java.awt.image.BufferedImage;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/*
+ * one bit per non-transparent pixel, packed in long words per row
+ *
+ * masks are built once per image and cached weakly, so an image that is no longer
+ * referenced by the game drops its mask as well.
+ * the cache is a concurrent map so the parallel narrow phase reads it without a shared lock,
+ * keys are weak references to the image and cleared ones are purged when a mask is added,
+ * lookups go through a per thread probe so a hit allocates nothing.
+ * */
+public class CollisionMask {
+    private static final ConcurrentHashMap<ImageKey, CollisionMask> masks = new ConcurrentHashMap<ImageKey, CollisionMask>();
+    private static final ReferenceQueue<BufferedImage> released = new ReferenceQueue<BufferedImage>();
+    private static final ThreadLocal<Probe> probes = new ThreadLocal<Probe>() {
+        @Override
+        protected Probe initialValue() {
+            return new Probe();
+        }
+    };
+
+    private int width;
+    private int height;
+    private int wordsPerRow;
+    private long[] bits;
+
+    public static CollisionMask get(final BufferedImage image) {
+        Probe probe = probes.get();
+
+        probe.image = image;
+        probe.hash = System.identityHashCode(image);
+
+        CollisionMask mask = masks.get(probe);
+
+        // the probe must not keep the image alive
+        probe.image = null;
+
+        if (mask != null) {
+            return mask;
+        }
+
+        purge();
+
+        return masks.computeIfAbsent(new ImageKey(image, released), new Function<ImageKey, CollisionMask>() {
+            @Override
+            public CollisionMask apply(ImageKey key) {
+                return new CollisionMask(image);
+            }
+        });
+    }
+
+    private static void purge() {
+        Reference<? extends BufferedImage> reference;
+
+        while ((reference = released.poll()) != null) {
+            masks.remove(reference);
+        }
+    }
+
+    public CollisionMask(BufferedImage image) {
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.bits = new long[wordsPerRow * height];
+
+        int[] row = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+
+            int base = y * wordsPerRow;
+
+            for (int x = 0; x < width; x++) {
+                if (row[x] != 0) {
+                    bits[base + (x >>> 6)] |= 1L << (x & 63);
+                }
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isSet(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+
+        return (bits[y * wordsPerRow + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    /*
+     * does the width x height region at (x1, y1) of this mask share a set pixel
+     * with the region of the same size at (x2, y2) of the other mask?
+     * */
+    public boolean overlaps(int x1, int y1, CollisionMask other, int x2, int y2, int width, int height) {
+        // pixels outside of either mask are never set
+        height = Math.min(height, Math.min(this.height - y1, other.height - y2));
+        width = Math.min(width, Math.min(this.width - x1, other.width - x2));
+
+        if (width <= 0 || height <= 0 || x1 < 0 || y1 < 0 || x2 < 0 || y2 < 0) {
+            return false;
+        }
+
+        for (int y = 0; y < height; y++) {
+            int base1 = (y1 + y) * wordsPerRow;
+            int base2 = (y2 + y) * other.wordsPerRow;
+
+            for (int x = 0; x < width; x += 64) {
+                int count = width - x;
+                long mask = count >= 64 ? -1L : (1L << count) - 1;
+
+                if ((readBits(bits, base1, wordsPerRow, x1 + x) & readBits(other.bits, base2, other.wordsPerRow, x2 + x) & mask) != 0) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    // 64 bits of a row starting at bit x
+    private static long readBits(long[] words, int base, int wordsPerRow, int x) {
+        int word = x >>> 6;
+        int shift = x & 63;
+        long value = words[base + word] >>> shift;
+
+        if (shift != 0 && word + 1 < wordsPerRow) {
+            value |= words[base + word + 1] << (64 - shift);
+        }
+
+        return value;
+    }
+
+    // lookup key matching the ImageKey of the same image, never stored in the map
+    private static class Probe {
+        private BufferedImage image;
+        private int hash;
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof ImageKey && ((ImageKey)object).get() == image;
+        }
+    }
+
+    // identity of the image, a cleared key only equals itself
+    private static class ImageKey extends WeakReference<BufferedImage> {
+        private int hash;
+
+        ImageKey(BufferedImage image, ReferenceQueue<BufferedImage> queue) {
+            super(image, queue);
+
+            this.hash = System.identityHashCode(image);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object == this) {
+                return true;
+            }
+
+            if (!(object instanceof ImageKey)) {
+                return false;
+            }
+
+            BufferedImage image = get();
+
+            return image != null && image == ((ImageKey)object).get();
+        }
+    }
+}
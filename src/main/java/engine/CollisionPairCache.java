@@ -0,0 +1,130 @@
+package engine;
+
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * bounded lru of pixel test results
+ *
+ * two images at the same relative offset always give the same answer,
+ * so pairs that do not move (a coin next to a floor tile) are tested only once.
+ * */
+public class CollisionPairCache {
+    public static final int MISS = -1;
+
+    private int capacity;
+    private LinkedHashMap<Key, Boolean> results;
+    private Key probe = new Key();
+
+    // statistics
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public CollisionPairCache(int capacity) {
+        this.capacity = capacity;
+        this.results = new LinkedHashMap<Key, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+                if (size() > CollisionPairCache.this.capacity) {
+                    evictions++;
+
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    // 1 for collision, 0 for none, MISS when the pair is not cached
+    synchronized public int get(BufferedImage image1, BufferedImage image2, int dx, int dy) {
+        probe.set(image1, image2, dx, dy);
+
+        Boolean result = results.get(probe);
+
+        if (result == null) {
+            misses++;
+
+            return MISS;
+        }
+
+        hits++;
+
+        return result ? 1 : 0;
+    }
+
+    synchronized public void put(BufferedImage image1, BufferedImage image2, int dx, int dy, boolean collided) {
+        if (capacity <= 0) {
+            return;
+        }
+
+        Key key = new Key();
+        key.set(image1, image2, dx, dy);
+
+        results.put(key, collided);
+    }
+
+    synchronized public void clear() {
+        results.clear();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    synchronized public int getSize() {
+        return results.size();
+    }
+
+    synchronized public long getHits() {
+        return hits;
+    }
+
+    synchronized public long getMisses() {
+        return misses;
+    }
+
+    synchronized public long getEvictions() {
+        return evictions;
+    }
+
+    synchronized public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    private static class Key {
+        BufferedImage image1;
+        BufferedImage image2;
+        int dx;
+        int dy;
+        int hash;
+
+        void set(BufferedImage image1, BufferedImage image2, int dx, int dy) {
+            this.image1 = image1;
+            this.image2 = image2;
+            this.dx = dx;
+            this.dy = dy;
+            this.hash = ((System.identityHashCode(image1) * 31 + System.identityHashCode(image2)) * 31 + dx) * 31 + dy;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key)object;
+
+            return image1 == key.image1 && image2 == key.image2 && dx == key.dx && dy == key.dy;
+        }
+    }
+}
@@ -4,18 +4,43 @@ import java.util.ArrayList;
 
 public class CollisionSection {
     private ArrayList<CollisionComponent> components = new ArrayList<CollisionComponent>();
+    private ArrayList<CollisionComponent> dynamicComponents = new ArrayList<CollisionComponent>();
+
+    // position in the manager's active sections, -1 while it holds no dynamic component
+    int activeIndex = -1;
 
     public void addComponent(CollisionComponent component) {
-        if (!components.contains(component)) {
-            components.add(component);
+        addComponent(component, false);
+    }
+
+    public void addComponent(CollisionComponent component, boolean isDynamic) {
+        ArrayList<CollisionComponent> target = isDynamic ? dynamicComponents : components;
+
+        if (!target.contains(component)) {
+            target.add(component);
+        }
+    }
+
+    public void removeComponent(CollisionComponent component) {
+        if (!dynamicComponents.remove(component)) {
+            components.remove(component);
         }
     }
 
     public int getSize() {
-        return components.size();
+        return components.size() + dynamicComponents.size();
+    }
+
+    public int getDynamicSize() {
+        return dynamicComponents.size();
     }
 
+    // static components
     public ArrayList<CollisionComponent> getComponents() {
         return components;
     }
+
+    public ArrayList<CollisionComponent> getDynamicComponents() {
+        return dynamicComponents;
+    }
 }
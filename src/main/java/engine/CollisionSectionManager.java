@@ -1,68 +1,194 @@
 package engine;
 
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
 
+/*
+ * persistent spatial hash
+ *
+ * static components (tiles) are inserted once with addToSection, dynamic components are re-placed
+ * by updateSection only when their bounds changed, and removal is explicit.
+ * only sections holding at least one dynamic component are checked, so the cost of a frame
+ * follows the moving components instead of the size of the map.
+ * sections live in a flat grid indexed by row * sectionsPerRow + col and are created on first use.
+ * */
 public class CollisionSectionManager {
     private int sectionSize;
     private int sectionsPerRow;
     private int sectionsPerCol;
-    private ArrayList<CollisionSection> sections = new ArrayList<CollisionSection>();
+    private CollisionSection[] sections;
+    private IdentityHashMap<CollisionComponent, Placement> placements = new IdentityHashMap<CollisionComponent, Placement>();
+    private ArrayList<CollisionSection> activeSections = new ArrayList<CollisionSection>();
+
+    private CollisionPairCache pairCache = new CollisionPairCache(4096);
+
+    // colliding pairs of the current check, stored flat as (component1, component2)
+    private ArrayList<CollisionComponent> hits = new ArrayList<CollisionComponent>();
+
+    // parallel narrow phase, sections are split in chunks and every chunk fills its own buffer
+    private static final int MIN_PARALLEL_SECTIONS = 64;
+    private ForkJoinPool pool;
+    private ArrayList<ArrayList<CollisionComponent>> chunkHits = new ArrayList<ArrayList<CollisionComponent>>();
+
+    // statistics, the first two are updated by the parallel workers
+    private LongAdder candidatePairs = new LongAdder();
+    private LongAdder pixelTests = new LongAdder();
+    private long collisionCallbacks = 0;
 
     public CollisionSectionManager(int width, int height, int sectionSize) {
         this.sectionSize = sectionSize;
         this.sectionsPerRow = (int)Math.ceil(width * 1.0 / sectionSize);
         this.sectionsPerCol = (int)Math.ceil(height * 1.0 / sectionSize);
+        this.sections = new CollisionSection[sectionsPerRow * sectionsPerCol];
+    }
 
-        this.rebuild();
+    public void clear() {
+        Arrays.fill(sections, null);
+        placements.clear();
+        activeSections.clear();
+    }
+
+    // insert a static component, it stays until it is moved by updateSection or removed
+    public void addToSection(CollisionComponent component) {
+        if (!placements.containsKey(component)) {
+            place(component, new Placement(false));
+        }
     }
 
-    public void rebuild() {
-        sections = new ArrayList<CollisionSection>();
+    // re-place a component whose bounds may have changed, unknown components are inserted as dynamic
+    public void updateSection(CollisionComponent component) {
+        Placement placement = placements.get(component);
 
-        for (int row = 0; row < sectionsPerCol; row++) {
-            for (int col = 0; col < sectionsPerRow; col++) {
-                sections.add(row * sectionsPerRow + col, new CollisionSection());
+        if (placement == null) {
+            place(component, new Placement(true));
+            return;
+        }
+
+        if (placement.left == component.getLeft() && placement.top == component.getTop()
+                && placement.right == component.getRight() && placement.bottom == component.getBottom()) {
+            placement.resting = true;
+            return;
+        }
+
+        unplace(component, placement);
+        place(component, placement);
+        placement.resting = false;
+    }
+
+    public void removeFromSection(CollisionComponent component) {
+        Placement placement = placements.remove(component);
+
+        if (placement != null) {
+            unplace(component, placement);
+        }
+    }
+
+    // opt-in, the narrow phase runs on the pool while callbacks stay on the calling thread
+    public void setParallel(boolean parallel) {
+        setPool(parallel ? ForkJoinPool.commonPool() : null);
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    public void checkCollisions() {
+        if (pool != null && activeSections.size() >= MIN_PARALLEL_SECTIONS) {
+            int chunks = Math.min(activeSections.size(), pool.getParallelism() * 4);
+
+            while (chunkHits.size() < chunks) {
+                chunkHits.add(new ArrayList<CollisionComponent>());
+            }
+
+            pool.invoke(new CheckTask(0, chunks, chunks));
+
+            // chunks are in section order, so callbacks fire in the same order as the serial check
+            for (int i = 0; i < chunks; i++) {
+                dispatchHits(chunkHits.get(i));
             }
+        } else {
+            collectHits(0, activeSections.size(), hits);
+            dispatchHits(hits);
         }
     }
 
-    public void addToSection(CollisionComponent component) {
-        int minX = component.getLeft();
-        int minY = component.getTop();
-        int maxX = component.getRight();
-        int maxY = component.getBottom();
+    private void collectHits(int from, int to, ArrayList<CollisionComponent> out) {
+        for (int i = from; i < to; i++) {
+            CollisionSection section = activeSections.get(i);
 
-        try {
-            if ((minX > -1 && minY > -1 && maxX > -1 && maxY > -1) && minX < maxX && minY < maxY) {
-                sections.get(getSectionIndex(minX + 0.1, minY + 0.1)).addComponent(component);
-                sections.get(getSectionIndex(minX + 0.1, maxY - 0.1)).addComponent(component);
-                sections.get(getSectionIndex(maxX - 0.1, minY + 0.1)).addComponent(component);
-                sections.get(getSectionIndex(maxX - 0.1, maxY - 0.1)).addComponent(component);
+            if (section.getSize() > 1) {
+                collectHits(section, out);
             }
-        } catch (IndexOutOfBoundsException e) {}
+        }
     }
 
-    public void checkCollisions() {
-        ArrayList<CollisionSection> allPossiblyCollisionSections = getAllPossiblyCollisionSections();
-
-        for (CollisionSection section: allPossiblyCollisionSections) {
-            // check collision by pixels
-            ArrayList<CollisionComponent> components = section.getComponents();
-
-            for (CollisionComponent component1: components) {
-                for (CollisionComponent component2: components) {
-                    if (component1 != component2) {
-                        if (checkComponentPixels(component1, component2)) {
-                            component1.inCollision(component2);
-                            component2.inCollision(component1);
-                        }
-                    }
+    // dispatch after all sections are checked, callbacks are free to add or remove components
+    private void dispatchHits(ArrayList<CollisionComponent> hits) {
+        collisionCallbacks += hits.size();
+
+        for (int i = 0; i < hits.size(); i += 2) {
+            CollisionComponent component1 = hits.get(i);
+            CollisionComponent component2 = hits.get(i + 1);
+
+            component1.inCollision(component2);
+            component2.inCollision(component1);
+        }
+
+        hits.clear();
+    }
+
+    private void collectHits(CollisionSection section, ArrayList<CollisionComponent> out) {
+        ArrayList<CollisionComponent> dynamicComponents = section.getDynamicComponents();
+        ArrayList<CollisionComponent> staticComponents = section.getComponents();
+        long dynamicCount = dynamicComponents.size();
+
+        candidatePairs.add(dynamicCount * (dynamicCount - 1) / 2 + dynamicCount * staticComponents.size());
+
+        for (int i = 0; i < dynamicComponents.size(); i++) {
+            CollisionComponent component1 = dynamicComponents.get(i);
+            boolean resting1 = isResting(component1);
+
+            for (int j = i + 1; j < dynamicComponents.size(); j++) {
+                CollisionComponent component2 = dynamicComponents.get(j);
+
+                if (checkComponentPixels(component1, component2, resting1 && isResting(component2))) {
+                    out.add(component1);
+                    out.add(component2);
+                }
+            }
+
+            for (int j = 0; j < staticComponents.size(); j++) {
+                CollisionComponent component2 = staticComponents.get(j);
+
+                if (checkComponentPixels(component1, component2, resting1)) {
+                    out.add(component1);
+                    out.add(component2);
                 }
             }
         }
     }
 
+    // did the component keep its bounds since the last update? pairs in motion rarely repeat, so they skip the pair cache
+    private boolean isResting(CollisionComponent component) {
+        Placement placement = placements.get(component);
+
+        return placement == null || placement.resting;
+    }
+
     public boolean checkComponentPixels(CollisionComponent component1, CollisionComponent component2) {
+        return checkComponentPixels(component1, component2, true);
+    }
+
+    private boolean checkComponentPixels(CollisionComponent component1, CollisionComponent component2, boolean useCache) {
         // intersection
         int intersectionLeft = Math.max(component1.getLeft(), component2.getLeft());
         int intersectionRight = Math.min(component1.getRight(), component2.getRight());
@@ -76,43 +202,222 @@ public class CollisionSectionManager {
             return false;
         }
 
-        int[] intersectionImageData1 = component1.getImage()
-                .getRGB(Math.max(0, intersectionLeft - component1.getLeft()),
-                        Math.max(0, intersectionTop - component1.getTop()),
-                        intersectionWidth, intersectionHeight,
-                        null, 0, intersectionWidth);
+        BufferedImage image1 = component1.getImage();
+        BufferedImage image2 = component2.getImage();
+
+        if (image1 == null || image2 == null) {
+            return false;
+        }
 
-        int[] intersectionImageData2 = component2.getImage()
-                .getRGB(Math.max(0, intersectionLeft - component2.getLeft()),
-                        Math.max(0, intersectionTop - component2.getTop()),
-                        intersectionWidth, intersectionHeight,
-                        null, 0, intersectionWidth);
+        // the answer only depends on the images and their offset when the bounds are the images
+        boolean cacheable = useCache
+                && component1.getRight() - component1.getLeft() == image1.getWidth()
+                && component1.getBottom() - component1.getTop() == image1.getHeight()
+                && component2.getRight() - component2.getLeft() == image2.getWidth()
+                && component2.getBottom() - component2.getTop() == image2.getHeight();
+        int dx = component2.getLeft() - component1.getLeft();
+        int dy = component2.getTop() - component1.getTop();
 
-        for (int i = 0; i < intersectionImageData1.length; i++) {
-            int color1 = intersectionImageData1[i];
-            int color2 = intersectionImageData2[i];
+        if (cacheable) {
+            int cached = pairCache.get(image1, image2, dx, dy);
 
-            if (color1 != 0 && color2 != 0) {
-                return true;
+            if (cached != CollisionPairCache.MISS) {
+                return cached == 1;
             }
         }
 
-        return false;
+        pixelTests.increment();
+
+        // word-wise test on the masks, precomputed frames hand theirs over without a cache lookup
+        CollisionMask mask1 = component1.getMask();
+        CollisionMask mask2 = component2.getMask();
+
+        if (mask1 == null || mask2 == null) {
+            return false;
+        }
+
+        boolean collided = mask1.overlaps(
+                intersectionLeft - component1.getLeft(), intersectionTop - component1.getTop(),
+                mask2,
+                intersectionLeft - component2.getLeft(), intersectionTop - component2.getTop(),
+                intersectionWidth, intersectionHeight);
+
+        if (cacheable) {
+            pairCache.put(image1, image2, dx, dy, collided);
+        }
+
+        return collided;
     }
 
-    private ArrayList<CollisionSection> getAllPossiblyCollisionSections() {
-        ArrayList<CollisionSection> allPossiblyCollisionSections = new ArrayList<CollisionSection>();
+    // pairs sharing a section since the last reset, before any bounds test
+    public long getCandidatePairs() {
+        return candidatePairs.sum();
+    }
 
-        for (CollisionSection section: sections) {
-            if (section.getSize() > 1) {
-                allPossiblyCollisionSections.add(section);
+    // pairs that reached the mask test since the last reset
+    public long getPixelTests() {
+        return pixelTests.sum();
+    }
+
+    // inCollision calls since the last reset, two per colliding pair
+    public long getCollisionCallbacks() {
+        return collisionCallbacks;
+    }
+
+    public void resetStatistics() {
+        candidatePairs.reset();
+        pixelTests.reset();
+        collisionCallbacks = 0;
+    }
+
+    public CollisionPairCache getPairCache() {
+        return pairCache;
+    }
+
+    // a capacity of 0 disables memoization
+    public void setPairCache(CollisionPairCache pairCache) {
+        this.pairCache = pairCache;
+    }
+
+    private void place(CollisionComponent component, Placement placement) {
+        int minX = component.getLeft();
+        int minY = component.getTop();
+        int maxX = component.getRight();
+        int maxY = component.getBottom();
+
+        placement.left = minX;
+        placement.top = minY;
+        placement.right = maxX;
+        placement.bottom = maxY;
+        placement.placed = false;
+        placements.put(component, placement);
+
+        if (!((minX > -1 && minY > -1 && maxX > -1 && maxY > -1) && minX < maxX && minY < maxY)) {
+            return;
+        }
+
+        placement.minCol = minX / sectionSize;
+        placement.minRow = minY / sectionSize;
+        placement.maxCol = Math.min((maxX - 1) / sectionSize, sectionsPerRow - 1);
+        placement.maxRow = Math.min((maxY - 1) / sectionSize, sectionsPerCol - 1);
+
+        if (placement.minCol > placement.maxCol || placement.minRow > placement.maxRow) {
+            return;
+        }
+
+        placement.placed = true;
+
+        for (int row = placement.minRow; row <= placement.maxRow; row++) {
+            for (int col = placement.minCol; col <= placement.maxCol; col++) {
+                CollisionSection section = getSection(row, col);
+
+                section.addComponent(component, placement.isDynamic);
+
+                if (placement.isDynamic && section.getDynamicSize() == 1) {
+                    section.activeIndex = activeSections.size();
+                    activeSections.add(section);
+                }
+            }
+        }
+    }
+
+    private void unplace(CollisionComponent component, Placement placement) {
+        if (!placement.placed) {
+            return;
+        }
+
+        for (int row = placement.minRow; row <= placement.maxRow; row++) {
+            for (int col = placement.minCol; col <= placement.maxCol; col++) {
+                CollisionSection section = sections[row * sectionsPerRow + col];
+
+                if (section == null) {
+                    continue;
+                }
+
+                section.removeComponent(component);
+
+                if (placement.isDynamic && section.getDynamicSize() == 0) {
+                    deactivate(section);
+                }
             }
         }
 
-        return allPossiblyCollisionSections;
+        placement.placed = false;
     }
 
-    private int getSectionIndex(double x, double y) {
-        return (int)Math.floor(y * 1.0 / sectionSize) * sectionsPerRow + (int)Math.floor(x * 1.0 / sectionSize);
+    // swap remove, the last active section takes the place of the one leaving
+    private void deactivate(CollisionSection section) {
+        int index = section.activeIndex;
+
+        if (index < 0) {
+            return;
+        }
+
+        CollisionSection last = activeSections.remove(activeSections.size() - 1);
+
+        if (last != section) {
+            activeSections.set(index, last);
+            last.activeIndex = index;
+        }
+
+        section.activeIndex = -1;
+    }
+
+    private CollisionSection getSection(int row, int col) {
+        int index = row * sectionsPerRow + col;
+        CollisionSection section = sections[index];
+
+        if (section == null) {
+            section = new CollisionSection();
+            sections[index] = section;
+        }
+
+        return section;
+    }
+
+    private class CheckTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private int fromChunk;
+        private int toChunk;
+        private int chunks;
+
+        CheckTask(int fromChunk, int toChunk, int chunks) {
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.chunks = chunks;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk > 1) {
+                int middle = (fromChunk + toChunk) >>> 1;
+
+                invokeAll(new CheckTask(fromChunk, middle, chunks), new CheckTask(middle, toChunk, chunks));
+                return;
+            }
+
+            int sections = activeSections.size();
+
+            collectHits((int)((long)fromChunk * sections / chunks), (int)((long)toChunk * sections / chunks), chunkHits.get(fromChunk));
+        }
+    }
+
+    private static class Placement {
+        boolean isDynamic;
+        boolean placed;
+        boolean resting = true;
+        int left;
+        int top;
+        int right;
+        int bottom;
+        int minRow;
+        int minCol;
+        int maxRow;
+        int maxCol;
+
+        Placement(boolean isDynamic) {
+            this.isDynamic = isDynamic;
+        }
     }
 }
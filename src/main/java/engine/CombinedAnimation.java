@@ -1,33 +1,36 @@
 package engine;
 
-import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
 
 public class CombinedAnimation extends Animation {
     private ArrayList<Animation> animations;
+    private AnimationConfig[] configs;
 
     public CombinedAnimation(Animation[] animations) {
         super(null, 0);
 
         this.animations = new ArrayList<Animation>(Arrays.asList(animations));
+        this.configs = new AnimationConfig[animations.length];
+
+        for (int i = 0; i < configs.length; i++) {
+            configs[i] = new AnimationConfig();
+        }
     }
 
     @Override
-    public AnimationConfig requestAnimationConfig(long pastMillSeconds) {
+    public boolean evaluate(long pastMillSeconds, AnimationConfig out) {
         // merge animation configs
-        AnimationConfig mergedConfig = new AnimationConfig(animations.get(0).current);
-
-        for (Animation animation: animations) {
-            AnimationConfig config = animation.requestAnimationConfig(pastMillSeconds);
+        out.set(animations.get(0).current);
 
-            if (config == null) {
-                return null;
+        for (int i = 0; i < configs.length; i++) {
+            if (!animations.get(i).evaluate(pastMillSeconds, configs[i])) {
+                return false;
             } else {
-                mergedConfig.merge(config);
+                out.merge(configs[i]);
             }
         }
 
-        return mergedConfig;
+        return true;
     }
 }
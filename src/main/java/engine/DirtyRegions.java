@@ -0,0 +1,93 @@
+package engine;
+
+import java.awt.*;
+import java.util.ArrayList;
+
+/*
+ * coalesced dirty rectangles
+ *
+ * overlapping or touching rectangles are merged as they are added,
+ * when more than maxRegions are left they collapse into their bounding box.
+ * */
+public class DirtyRegions {
+    private int maxRegions;
+    private ArrayList<Rectangle> regions = new ArrayList<Rectangle>();
+    private ArrayList<Rectangle> pool = new ArrayList<Rectangle>();
+
+    public DirtyRegions(int maxRegions) {
+        this.maxRegions = Math.max(1, maxRegions);
+    }
+
+    public void add(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        Rectangle region = obtain(x, y, width, height);
+
+        // merge until nothing touches the grown region
+        boolean merged = true;
+
+        while (merged) {
+            merged = false;
+
+            for (int i = 0; i < regions.size(); i++) {
+                Rectangle other = regions.get(i);
+
+                if (touches(region, other)) {
+                    region.add(other);
+                    pool.add(regions.remove(i));
+                    merged = true;
+                    break;
+                }
+            }
+        }
+
+        regions.add(region);
+
+        if (regions.size() > maxRegions) {
+            Rectangle bounds = regions.get(0);
+
+            for (int i = regions.size() - 1; i > 0; i--) {
+                bounds.add(regions.get(i));
+                pool.add(regions.remove(i));
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return regions.isEmpty();
+    }
+
+    public int size() {
+        return regions.size();
+    }
+
+    // move the regions into out, rectangles in out are recycled first
+    public void drain(ArrayList<Rectangle> out) {
+        pool.addAll(out);
+        out.clear();
+        out.addAll(regions);
+        regions.clear();
+    }
+
+    public void clear() {
+        pool.addAll(regions);
+        regions.clear();
+    }
+
+    private Rectangle obtain(int x, int y, int width, int height) {
+        if (pool.isEmpty()) {
+            return new Rectangle(x, y, width, height);
+        }
+
+        Rectangle rectangle = pool.remove(pool.size() - 1);
+        rectangle.setBounds(x, y, width, height);
+
+        return rectangle;
+    }
+
+    private static boolean touches(Rectangle a, Rectangle b) {
+        return a.x <= b.x + b.width && b.x <= a.x + a.width && a.y <= b.y + b.height && b.y <= a.y + a.height;
+    }
+}
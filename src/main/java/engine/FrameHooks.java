@@ -0,0 +1,42 @@
+package engine;
+
+import java.util.ArrayList;
+
+/*
+ * callbacks waiting for a frame boundary
+ *
+ * hooks can be added from any thread, run() executes the ones added before it started,
+ * a hook that adds another hook pushes it to the following boundary.
+ * */
+public class FrameHooks {
+    private ArrayList<Runnable> pending = new ArrayList<Runnable>();
+    private ArrayList<Runnable> running = new ArrayList<Runnable>();
+
+    public synchronized void add(Runnable hook) {
+        pending.add(hook);
+    }
+
+    public synchronized boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    public void run() {
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            ArrayList<Runnable> hooks = running;
+            running = pending;
+            pending = hooks;
+        }
+
+        try {
+            for (Runnable hook: running) {
+                hook.run();
+            }
+        } finally {
+            running.clear();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package engine;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * per frame timings and collision counters
+ *
+ * every phase of an update and of the paint on the event thread is recorded into its own histogram,
+ * the collision counters are recorded per frame as well so spikes show up in p99 and max.
+ * the same numbers are exported as an MXBean and drawn by the game when the overlay is visible.
+ * */
+public class FrameStats implements FrameStatsMXBean {
+    // phases, in nanoseconds
+    public static final int INPUT = 0;
+    public static final int SCHEDULER = 1;
+    public static final int ANIMATIONS = 2;
+    public static final int BROADPHASE = 3;
+    public static final int COLLISIONS = 4;
+    public static final int UPDATE = 5;
+    public static final int PAINT_BACKGROUND = 6;
+    public static final int PAINT_TILES = 7;
+    public static final int PAINT_CHARACTERS = 8;
+    public static final int PAINT_ANIMATIONS = 9;
+    public static final int RENDER = 10;
+
+    // counters, per frame
+    public static final int CANDIDATE_PAIRS = 11;
+    public static final int PIXEL_TESTS = 12;
+    public static final int COLLISION_CALLBACKS = 13;
+
+    private static final String[] NAMES = {
+            "input", "scheduler", "animations", "broadphase", "collisions", "update",
+            "paintBackground", "paintTiles", "paintCharacters", "paintAnimations", "render",
+            "candidatePairs", "pixelTests", "collisionCallbacks"
+    };
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    private Histogram[] histograms = new Histogram[NAMES.length];
+    private ObjectName objectName;
+    private volatile long frames = 0;
+    private volatile long candidatePairs = 0;
+    private volatile long pixelTests = 0;
+    private volatile long collisionCallbacks = 0;
+    private volatile boolean overlayVisible = false;
+
+    public FrameStats() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    public static int size() {
+        return NAMES.length;
+    }
+
+    public static String nameOf(int index) {
+        return NAMES[index];
+    }
+
+    public static boolean isPhase(int index) {
+        return index <= RENDER;
+    }
+
+    public Histogram getHistogram(int index) {
+        return histograms[index];
+    }
+
+    public void record(int index, long value) {
+        histograms[index].record(value);
+    }
+
+    // move the counters of the last check into the histograms, game thread only
+    public void recordCollisions(CollisionSectionManager collisionSectionManager) {
+        long pairs = collisionSectionManager.getCandidatePairs();
+        long tests = collisionSectionManager.getPixelTests();
+        long callbacks = collisionSectionManager.getCollisionCallbacks();
+
+        collisionSectionManager.resetStatistics();
+
+        histograms[CANDIDATE_PAIRS].record(pairs);
+        histograms[PIXEL_TESTS].record(tests);
+        histograms[COLLISION_CALLBACKS].record(callbacks);
+
+        candidatePairs += pairs;
+        pixelTests += tests;
+        collisionCallbacks += callbacks;
+    }
+
+    // game thread only
+    public void endFrame() {
+        frames++;
+    }
+
+    // register on the platform mbean server as engine:type=FrameStats,id=<n>
+    public void register() {
+        if (objectName != null) {
+            return;
+        }
+
+        try {
+            objectName = new ObjectName("engine:type=FrameStats,id=" + instances.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (JMException e) {
+            System.out.println("register frame stats failed");
+            objectName = null;
+        }
+    }
+
+    public void unregister() {
+        if (objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            // already gone
+        }
+
+        objectName = null;
+    }
+
+    @Override
+    public long getFrames() {
+        return frames;
+    }
+
+    @Override
+    public Map<String, Long> getP50() {
+        return percentiles(50);
+    }
+
+    @Override
+    public Map<String, Long> getP99() {
+        return percentiles(99);
+    }
+
+    @Override
+    public Map<String, Long> getMax() {
+        return percentiles(100);
+    }
+
+    @Override
+    public long getCandidatePairs() {
+        return candidatePairs;
+    }
+
+    @Override
+    public long getPixelTests() {
+        return pixelTests;
+    }
+
+    @Override
+    public long getCollisionCallbacks() {
+        return collisionCallbacks;
+    }
+
+    @Override
+    public boolean isOverlayVisible() {
+        return overlayVisible;
+    }
+
+    @Override
+    public void setOverlayVisible(boolean visible) {
+        this.overlayVisible = visible;
+    }
+
+    @Override
+    public void reset() {
+        for (Histogram histogram: histograms) {
+            histogram.reset();
+        }
+
+        frames = 0;
+        candidatePairs = 0;
+        pixelTests = 0;
+        collisionCallbacks = 0;
+    }
+
+    private Map<String, Long> percentiles(double percentile) {
+        LinkedHashMap<String, Long> values = new LinkedHashMap<String, Long>();
+
+        for (int i = 0; i < histograms.length; i++) {
+            values.put(NAMES[i], histograms[i].getPercentile(percentile));
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,28 @@
+package engine;
+
+import java.util.Map;
+
+/*
+ * frame statistics over jmx, phase times are in nanoseconds and counters are per frame
+ * */
+public interface FrameStatsMXBean {
+    long getFrames();
+
+    Map<String, Long> getP50();
+
+    Map<String, Long> getP99();
+
+    Map<String, Long> getMax();
+
+    long getCandidatePairs();
+
+    long getPixelTests();
+
+    long getCollisionCallbacks();
+
+    boolean isOverlayVisible();
+
+    void setOverlayVisible(boolean visible);
+
+    void reset();
+}
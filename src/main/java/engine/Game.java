@@ -4,19 +4,48 @@ import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import java.awt.geom.AffineTransform;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.ArrayList;
-import java.util.TimerTask;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.Timer;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class Game extends JPanel {
+    private static final int DEFAULT_TICKS_PER_SECOND = 60;
+    private static final int DEFAULT_VIEW_TILES = 20;
+    private static final int DEFAULT_VIEW_MARGIN = 8;
+    private static final String[] ATLAS_DIRS = {"map/", "coin/", "monkey/", "animation/"};
+    private static final int STATS_WIDTH = 330;
+    private static final int STATS_LINE_HEIGHT = 14;
+    private static final Color STATS_BACKGROUND = new Color(0, 0, 0, 160);
+    private static final Font STATS_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
 
-public class Game extends JPanel implements Runnable {
     private JFrame frame;
+    private GameLoop loop;
     private boolean pauseOnNextFrame = false;
     private boolean paused = true;
+    private ActionListener pauseListener;
+    private CompletableFuture<Void> pauseCompletion;
+
+    // frame lifecycle, both run on the game thread outside the game lock
+    private FrameHooks beforeFrame = new FrameHooks();
+    private FrameHooks afterFrame = new FrameHooks();
+
+    // time seen by animations and characters
+    private ManualClock clock = new ManualClock();
+    private long schedulerLagNanos = 0;
+
+    // phase timings, exported over jmx and drawn on top of the frame when toggled with F3
+    private FrameStats stats = new FrameStats();
+    private boolean statsShown = false;
+
+    // key events are queued by awt and applied by the game thread
+    private InputQueue input = new InputQueue();
+    private CopyOnWriteArrayList<InputAdapter> inputListeners = new CopyOnWriteArrayList<InputAdapter>();
 
     // resources
     private String assetsPath;
@@ -24,121 +53,338 @@ public class Game extends JPanel implements Runnable {
     private int rows;
     private int cols;
     private ArrayList<BufferedImage> images = new ArrayList<BufferedImage>();
+    private AssetCache assetCache = new AssetCache();
+    private TextureAtlas textureAtlas = new TextureAtlas(assetCache);
+    private AssetPreloader preloader;
+
+    // next level, built off the game thread
+    private final Object prefetchLock = new Object();
+    private ExecutorService levelExecutor;
+    private int prefetchedIndex = -1;
+    private Future<Level> prefetchedLevel;
 
     // components
-    private ArrayList<Tile> tiles = new ArrayList<Tile>();
-    private ArrayList<ArrayList<Tile>> tilesByImageIndex = new ArrayList<ArrayList<Tile>>();
+    private TileWorld world;
+    private StaticLayer staticLayer;
     private ArrayList<Character> characters = new ArrayList<Character>();
     private CopyOnWriteArrayList<Animation> animations = new CopyOnWriteArrayList<Animation>();
 
     // collision
     private CollisionSectionManager collisionSectionManager;
+    private boolean parallelCollisions = false;
+
+    // view, only chunks around the camera hold tiles
+    private Camera camera = new Camera(0, 0);
+    private int viewRows = DEFAULT_VIEW_TILES;
+    private int viewCols = DEFAULT_VIEW_TILES;
+    private int viewMargin = DEFAULT_VIEW_MARGIN;
+    private int chunkSize = TileWorld.DEFAULT_CHUNK_SIZE;
+    private int activeLeft;
+    private int activeTop;
+    private int activeRight;
+    private int activeBottom;
+
+    // repaint
+    private DirtyRegions dirtyRegions = new DirtyRegions(16);
+    private ArrayList<Rectangle> paintingRegions = new ArrayList<Rectangle>();
+    private boolean repaintAll = true;
+    private AtomicBoolean paintPending = new AtomicBoolean(false);
+
+    // tasks on the game clock, cancelled when a level is published
+    private TickScheduler scheduler = new TickScheduler();
 
     public Game(String assetsPath, int tileSize) {
+        this(assetsPath, tileSize, GraphicsEnvironment.isHeadless());
+    }
+
+    /*
+     * a headless game has no frame and no loop thread,
+     * it only advances when tick() / simulate() is called
+     * */
+    public Game(String assetsPath, int tileSize, boolean headless) {
         this.assetsPath = assetsPath;
         this.tileSize = tileSize;
+        this.loop = new GameLoop(this, DEFAULT_TICKS_PER_SECOND);
+
+        // decode assets in parallel, the first level only needs the critical ones
+        this.preloader = new AssetPreloader(this);
+        this.preloader.start();
+        this.preloader.awaitCritical();
 
         // init images pool
         this.images = loadImages("map/");
 
         // add to frame
-        this.frame = new JFrame("Game");
+        if (!headless) {
+            this.frame = new JFrame("Game");
 
-        this.frame.setResizable(false);
-        this.frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        this.frame.add(this);
+            this.frame.setResizable(false);
+            this.frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            this.frame.add(this);
+        }
 
         // set absolute position
         this.setLayout(null);
 
+        // listeners only enqueue, events are applied on the next tick
+        this.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent keyEvent) {
+                input.offer(InputQueue.encode(InputQueue.KEY_PRESSED, keyEvent.getKeyChar(), keyEvent.getKeyCode()));
+            }
+
+            @Override
+            public void keyReleased(KeyEvent keyEvent) {
+                input.offer(InputQueue.encode(InputQueue.KEY_RELEASED, keyEvent.getKeyChar(), keyEvent.getKeyCode()));
+            }
+
+            @Override
+            public void keyTyped(KeyEvent keyEvent) {
+                input.offer(InputQueue.encode(InputQueue.KEY_TYPED, keyEvent.getKeyChar(), keyEvent.getKeyCode()));
+            }
+        });
+
+        // statistics overlay
+        this.addInputListener(new InputAdapter() {
+            @Override
+            public void keyPressed(char keyChar, int keyCode) {
+                if (keyCode == KeyEvent.VK_F3) {
+                    stats.setOverlayVisible(!stats.isOverlayVisible());
+                }
+            }
+        });
+
+        this.stats.register();
+
         // load first level
         loadLevel(0);
 
+        if (headless) {
+            return;
+        }
+
         // show
         this.frame.setLocationRelativeTo(null);
         this.setSize(null);
         this.frame.setVisible(true);
 
-        // start painting thread
-        new Thread(this).start();
+        // start game loop
+        this.loop.start();
+    }
+
+    // stop the loop and release what outlives the game, the frame and the jmx registration
+    public void dispose() {
+        loop.stop();
+        scheduler.cancelAll();
+        stats.unregister();
+
+        if (frame != null) {
+            frame.dispose();
+        }
+    }
+
+    public boolean isHeadless() {
+        return frame == null;
     }
 
     public void setSize(Dimension dimension) {
+        markAllDirty();
+
+        Dimension size = dimension == null ? new Dimension(camera.getWidth(), camera.getHeight()) : dimension;
+
+        if (frame == null) {
+            super.setSize(size);
+
+            return;
+        }
+
         // call this to make insets valid
         this.frame.pack();
 
-        Dimension size = dimension == null ? new Dimension(cols * tileSize, rows * tileSize) : dimension;
         Insets insets = this.frame.getInsets();
 
         this.frame.setSize(size.width + insets.left + insets.right, size.height + insets.top + insets.bottom);
     }
 
+    /*
+     * switch to the given level
+     *
+     * a level prefetched for this index is taken as is, otherwise it is built on the caller.
+     * the new world is published under the game lock, so it replaces the old one between two ticks
+     * and never while a frame is painted. the following level is prefetched right after.
+     * */
     public boolean loadLevel(int levelIndex) {
-        try {
-            InputStream is = getClass().getResourceAsStream(assetsPath + "levels/" + levelIndex + ".lvl");
+        Level level = null;
+        boolean built = false;
+        Future<Level> prefetched = takePrefetched(levelIndex);
+
+        if (prefetched != null) {
+            try {
+                level = prefetched.get();
+                built = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
 
-            if (is == null) {
                 return false;
+            } catch (ExecutionException e) {
+                // built again below so the failure is reported here
             }
+        }
 
-            ObjectInputStream ois = new ObjectInputStream(is);
+        if (!built) {
+            try {
+                level = buildLevel(levelIndex);
+            } catch (IOException e) {
+                System.out.println("read level file failed");
+                System.out.println(e.getMessage());
 
-            int[][] encodedTilesData = (int[][])ois.readObject();
+                return false;
+            }
+        }
 
-            if (encodedTilesData.length > 0) {
-                this.rows = encodedTilesData.length;
-                this.cols = encodedTilesData[0].length;
-                this.setSize(null);
+        if (level == null) {
+            return false;
+        }
 
-                // set collision section manager
-                this.collisionSectionManager = new CollisionSectionManager(cols * tileSize, rows * tileSize, 2 * tileSize);
+        publishLevel(level);
+        prefetchLevel(levelIndex + 1);
 
-                // clear arrays
-                this.animations.clear();
-                this.tiles.clear();
-                this.tilesByImageIndex.clear();
+        return true;
+    }
 
-                // clean characters
-                for (Character character: characters) {
-                    character.dispose();
-                }
+    // play a level that does not come from the assets, e.g. a generated one
+    public boolean loadLevel(LevelData levelData) {
+        Level level = buildLevel(-1, levelData);
 
-                characters.clear();
+        if (level == null) {
+            return false;
+        }
 
-                // init tilesByImageIndex
-                for (int i = 0; i < images.size(); i++) {
-                    tilesByImageIndex.add(i, new ArrayList<Tile>());
-                }
+        publishLevel(level);
+
+        return true;
+    }
+
+    // decode the level and build its world on a background thread, loadLevel picks it up
+    public Future<Level> prefetchLevel(final int levelIndex) {
+        synchronized (prefetchLock) {
+            if (prefetchedLevel != null && prefetchedIndex == levelIndex) {
+                return prefetchedLevel;
+            }
+
+            if (prefetchedLevel != null) {
+                prefetchedLevel.cancel(false);
+            }
 
-                try {
-                    for (int row = 0; row < encodedTilesData.length; row++) {
-                        for (int col = 0; col < encodedTilesData[row].length; col++) {
-                            TileData tileData = new TileData(encodedTilesData[row][col]);
-                            Tile tile = new Tile(this, images.get(tileData.imageIndex), tileData.isCollisional, row, col);
+            if (levelExecutor == null) {
+                levelExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "level-prefetch");
+                        thread.setDaemon(true);
 
-                            this.tiles.add(tile);
-                            tilesByImageIndex.get(tileData.imageIndex).add(tile);
-                        }
+                        return thread;
                     }
-                } catch (IndexOutOfBoundsException e) {
+                });
+            }
+
+            prefetchedIndex = levelIndex;
+            prefetchedLevel = levelExecutor.submit(new Callable<Level>() {
+                @Override
+                public Level call() throws IOException {
+                    return buildLevel(levelIndex);
+                }
+            });
+
+            return prefetchedLevel;
+        }
+    }
+
+    private Future<Level> takePrefetched(int levelIndex) {
+        synchronized (prefetchLock) {
+            if (prefetchedLevel == null || prefetchedIndex != levelIndex) {
+                return null;
+            }
+
+            Future<Level> level = prefetchedLevel;
+            prefetchedLevel = null;
+
+            return level;
+        }
+    }
+
+    // null when the level does not exist or needs images the map pool does not have
+    private Level buildLevel(int levelIndex) throws IOException {
+        LevelData levelData = LevelFile.read(getClass(), assetsPath + "levels/" + levelIndex + ".lvl");
+
+        if (levelData == null) {
+            return null;
+        }
+
+        return buildLevel(levelIndex, levelData);
+    }
+
+    private Level buildLevel(int levelIndex, LevelData levelData) {
+        int rows = levelData.getRows();
+        int cols = levelData.getCols();
+
+        if (rows == 0) {
+            return new Level(levelIndex, levelData, null, null);
+        }
+
+        // every image must exist before a chunk is built
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (new TileData(levelData.get(row, col)).imageIndex >= images.size()) {
                     System.out.println("map images not satisfied");
 
-                    return false;
+                    return null;
                 }
             }
-        } catch (IOException e) {
-            System.out.println("read level file failed");
-            System.out.println(e.getMessage());
+        }
 
-            return false;
-        } catch (ClassNotFoundException e) {
-            System.out.println("invalid level file format");
+        CollisionSectionManager collisionSectionManager = new CollisionSectionManager(cols * tileSize, rows * tileSize, 2 * tileSize);
+        TileWorld world = new TileWorld(this, levelData, collisionSectionManager, chunkSize);
 
-            return false;
+        // the camera starts at the origin, load the chunks it will see first
+        world.retain(-viewMargin, -viewMargin, Math.min(rows, viewRows) - 1 + viewMargin, Math.min(cols, viewCols) - 1 + viewMargin);
+
+        return new Level(levelIndex, levelData, collisionSectionManager, world);
+    }
+
+    private void publishLevel(Level level) {
+        if (level.getRows() > 0) {
+            synchronized (this) {
+                this.rows = level.getRows();
+                this.cols = level.getCols();
+
+                // set collision section manager
+                this.collisionSectionManager = level.getCollisionSectionManager();
+                this.collisionSectionManager.setParallel(parallelCollisions);
+
+                // clean characters
+                for (Character character: characters) {
+                    character.dispose();
+                }
+
+                scheduler.cancelAll();
+
+                // fresh lists, whoever still iterates the old ones finishes on the old level
+                this.animations = new CopyOnWriteArrayList<Animation>();
+                this.characters = new ArrayList<Character>();
+
+                this.world = level.getWorld();
+                this.camera = new Camera(Math.min(cols, viewCols) * tileSize, Math.min(rows, viewRows) * tileSize);
+                this.staticLayer = new StaticLayer(this, Math.min(rows, viewRows) + 1, Math.min(cols, viewCols) + 1);
+
+                updateView();
+            }
+
+            this.setSize(null);
         }
 
         paused = false;
-        return true;
+        markAllDirty();
     }
 
     public String getAssetsPath() {
@@ -162,7 +408,71 @@ public class Game extends JPanel implements Runnable {
         return images;
     }
 
+    // images are shared through the asset cache, callers must not draw into them
     public BufferedImage loadImage(String path, int degree, boolean needResize) {
+        BufferedImage image = assetCache.get(path, degree, needResize);
+
+        if (image != null) {
+            return image;
+        }
+
+        // still being decoded by the preloader?
+        if (preloader != null) {
+            image = preloader.await(path, degree, needResize);
+        }
+
+        if (image == null) {
+            image = atlasImage(path, degree, needResize);
+        }
+
+        // cache it again, the preloaded copy may have been evicted already
+        assetCache.put(path, degree, needResize, image);
+
+        return image;
+    }
+
+    static String assetKey(String path, int degree, boolean needResize) {
+        return path + "@" + (degree % 360) + (needResize ? "r" : "");
+    }
+
+    // sprites are packed into the texture atlas once, evicted cache entries come back from there as page views
+    BufferedImage atlasImage(String path, int degree, boolean needResize) {
+        boolean isSprite = false;
+
+        for (String dir: ATLAS_DIRS) {
+            if (path.startsWith(dir)) {
+                isSprite = true;
+                break;
+            }
+        }
+
+        if (!isSprite) {
+            return decodeImage(path, degree, needResize);
+        }
+
+        String key = assetKey(path, degree, needResize);
+        BufferedImage image = textureAtlas.get(key);
+
+        if (image == null) {
+            image = decodeImage(path, degree, needResize);
+
+            if (image != null) {
+                image = textureAtlas.add(key, image);
+            }
+        }
+
+        return image;
+    }
+
+    public TextureAtlas getTextureAtlas() {
+        return textureAtlas;
+    }
+
+    public AssetCache getAssetCache() {
+        return assetCache;
+    }
+
+    private BufferedImage decodeImage(String path, int degree, boolean needResize) {
         try {
             InputStream is = getClass().getResourceAsStream(assetsPath + path);
 
@@ -203,60 +513,171 @@ public class Game extends JPanel implements Runnable {
         }
     }
 
-    public void pauseOnNextFrame(final ActionListener actionListener) {
-        if (paused || pauseOnNextFrame) {
-            return;
+    /*
+     * pause at the end of the current (or next) frame
+     *
+     * the listener runs and the returned future completes right after the frame that paused,
+     * on the game thread and outside the game lock, so it can load the next level in the same frame.
+     * while a pause is pending the listener is ignored and the pending future is returned.
+     * */
+    synchronized public CompletableFuture<Void> pauseOnNextFrame(ActionListener actionListener) {
+        if (pauseOnNextFrame) {
+            return pauseCompletion;
         }
 
-        final Timer timer = new Timer();
+        if (paused) {
+            return CompletableFuture.completedFuture(null);
+        }
 
         pauseOnNextFrame = true;
-        timer.schedule(new TimerTask() {
-            @Override
-            synchronized public void run() {
-                if (paused) {
-                    timer.cancel();
+        pauseListener = actionListener;
+        pauseCompletion = new CompletableFuture<Void>();
 
-                    if (actionListener != null) {
-                        actionListener.actionPerformed(null);
-                    }
-                }
-            }
-        }, 0, 10);
+        return pauseCompletion;
+    }
+
+    public void addInputListener(InputAdapter listener) {
+        inputListeners.add(listener);
+    }
+
+    public void removeInputListener(InputAdapter listener) {
+        inputListeners.remove(listener);
+    }
+
+    public InputQueue getInput() {
+        return input;
+    }
+
+    // run once after the frame in progress, or after the next one when no frame is running
+    public void afterThisFrame(Runnable hook) {
+        afterFrame.add(hook);
+    }
+
+    // run once before the next frame updates anything
+    public void beforeNextFrame(Runnable hook) {
+        beforeFrame.add(hook);
     }
 
-    public void addCharacter(Character character, int row, int col) {
+    synchronized public void addCharacter(Character character, int row, int col) {
         character.setRow(row);
         character.setCol(col);
 
         characters.add(character);
+        updateView();
     }
 
-    public void addAnimation(Animation animation) {
-        animation.start();
+    synchronized public void addAnimation(Animation animation) {
+        animation.start(clock);
         animations.add(animation);
+        markDirty(animation.current);
     }
 
     public void removeAnimation(Animation animation) {
         animations.remove(animation);
+        collisionSectionManager.removeFromSection(animation);
+        markDirty(animation.current);
+    }
+
+    // narrow phase on the common fork join pool, collision callbacks still run on the update thread
+    synchronized public void setParallelCollisions(boolean parallelCollisions) {
+        this.parallelCollisions = parallelCollisions;
+
+        if (collisionSectionManager != null) {
+            collisionSectionManager.setParallel(parallelCollisions);
+        }
+    }
+
+    public CollisionSectionManager getCollisionSectionManager() {
+        return collisionSectionManager;
     }
 
     public int getTileSize() {
         return tileSize;
     }
 
-    public ArrayList<Tile> getTilesByImageIndex(int index) {
-        return tilesByImageIndex.get(index);
+    // both may load chunks, which the game thread also does from updateView under the game lock
+    synchronized public ArrayList<Tile> getTilesByImageIndex(int index) {
+        return world.getTilesByImageIndex(index);
     }
 
-    public Tile getTile(int row, int col) {
-        for (Tile tile: tiles) {
-            if (row == tile.getRow() && col == tile.getCol()) {
-                return tile;
-            }
+    synchronized public Tile getTile(int row, int col) {
+        return world.getTile(row, col);
+    }
+
+    // without loading the chunk, for rendering
+    Tile peekTile(int row, int col) {
+        return world.peekTile(row, col);
+    }
+
+    public TileWorld getWorld() {
+        return world;
+    }
+
+    public Camera getCamera() {
+        return camera;
+    }
+
+    // the window shows at most rows x cols tiles, applied on the next level load
+    public void setViewSize(int rows, int cols) {
+        this.viewRows = rows;
+        this.viewCols = cols;
+    }
+
+    // tiles around the view that stay loaded and collide, applied on the next level load
+    public void setViewMargin(int viewMargin) {
+        this.viewMargin = viewMargin;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    synchronized void onTileMoved(Tile tile, int fromRow, int fromCol) {
+        world.onTileMoved(tile, fromRow, fromCol);
+
+        if (tile.isCollisional()) {
+            collisionSectionManager.updateSection(tile);
         }
 
-        return null;
+        markCellDirty(fromRow, fromCol);
+        markCellDirty(tile.getRow(), tile.getCol());
+    }
+
+    synchronized void onTileRemoved(Tile tile) {
+        world.onTileChanged(tile);
+        collisionSectionManager.removeFromSection(tile);
+        markCellDirty(tile.getRow(), tile.getCol());
+    }
+
+    synchronized void onTileChanged(Tile tile) {
+        if (world != null) {
+            world.onTileChanged(tile);
+            markCellDirty(tile.getRow(), tile.getCol());
+        }
+    }
+
+    int indexOfImage(BufferedImage image) {
+        return images.indexOf(image);
+    }
+
+    private void markCellDirty(int row, int col) {
+        staticLayer.markDirty(row, col);
+        markDirty(col * tileSize, row * tileSize, tileSize, tileSize);
+    }
+
+    // world area to repaint on the next render pass
+    synchronized void markDirty(int x, int y, int width, int height) {
+        dirtyRegions.add(x - camera.getX(), y - camera.getY(), width, height);
+    }
+
+    private void markDirty(AnimationConfig config) {
+        if (config != null) {
+            markDirty(config.getX(), config.getY(), config.getWidth(), config.getHeight());
+        }
+    }
+
+    synchronized public void markAllDirty() {
+        repaintAll = true;
     }
 
     public BufferedImage getImage(int index) {
@@ -264,61 +685,421 @@ public class Game extends JPanel implements Runnable {
     }
 
     @Override
-    synchronized public void paint(Graphics graphics) {
+    public void paint(Graphics graphics) {
+        long startNanos = System.nanoTime();
+
         super.paint(graphics);
+        stats.record(FrameStats.PAINT_BACKGROUND, System.nanoTime() - startNanos);
+
+        renderFrame(graphics);
+    }
 
+    // draw the state produced by the last update
+    synchronized public void renderFrame(Graphics graphics) {
         if (paused) {
             return;
         }
 
-        // background
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                graphics.drawImage(images.get(0), col * tileSize, row * tileSize, tileSize, tileSize, null);
+        long startNanos = System.nanoTime();
+        Graphics2D worldGraphics = (Graphics2D)graphics.create();
+
+        try {
+            worldGraphics.translate(-camera.getX(), -camera.getY());
+
+            // floor and tiles
+            staticLayer.render(worldGraphics, getGraphicsConfiguration());
+
+            long charactersNanos = System.nanoTime();
+            stats.record(FrameStats.PAINT_TILES, charactersNanos - startNanos);
+
+            // sprites outside of the clip are skipped
+            Rectangle clip = worldGraphics.getClipBounds();
+
+            if (clip == null) {
+                clip = new Rectangle(camera.getX(), camera.getY(), camera.getWidth(), camera.getHeight());
             }
+
+            for (Character character: characters) {
+                if (intersects(clip, character.getLeft(), character.getTop(), character.getRight(), character.getBottom())) {
+                    character.render(worldGraphics);
+                }
+            }
+
+            long animationsNanos = System.nanoTime();
+            stats.record(FrameStats.PAINT_CHARACTERS, animationsNanos - charactersNanos);
+
+            for (Animation animation: animations) {
+                if (intersects(clip, animation.getLeft(), animation.getTop(), animation.getRight(), animation.getBottom())) {
+                    animation.render(worldGraphics);
+                }
+            }
+
+            stats.record(FrameStats.PAINT_ANIMATIONS, System.nanoTime() - animationsNanos);
+        } finally {
+            worldGraphics.dispose();
         }
 
-        for (Tile tile: tiles) {
-            tile.render(graphics);
+        stats.record(FrameStats.RENDER, System.nanoTime() - startNanos);
+
+        if (statsShown) {
+            renderStats(graphics);
         }
+    }
 
-        for (Character character: characters) {
-            character.render(graphics);
+    // p50 / p99 / max of every phase (microseconds) and counter, in screen coordinates
+    private void renderStats(Graphics graphics) {
+        int lines = FrameStats.size() + 1;
+
+        graphics.setColor(STATS_BACKGROUND);
+        graphics.fillRect(0, 0, STATS_WIDTH, lines * STATS_LINE_HEIGHT + 6);
+        graphics.setColor(Color.WHITE);
+        graphics.setFont(STATS_FONT);
+        graphics.drawString(String.format("%-19s %8s %8s %8s", "frame " + stats.getFrames(), "p50", "p99", "max"), 4, STATS_LINE_HEIGHT);
+
+        for (int i = 0; i < FrameStats.size(); i++) {
+            Histogram histogram = stats.getHistogram(i);
+            String line;
+
+            if (FrameStats.isPhase(i)) {
+                line = String.format("%-19s %8.1f %8.1f %8.1f", FrameStats.nameOf(i),
+                        histogram.getPercentile(50) / 1000.0, histogram.getPercentile(99) / 1000.0, histogram.getMax() / 1000.0);
+            } else {
+                line = String.format("%-19s %8d %8d %8d", FrameStats.nameOf(i),
+                        histogram.getPercentile(50), histogram.getPercentile(99), histogram.getMax());
+            }
+
+            graphics.drawString(line, 4, (i + 2) * STATS_LINE_HEIGHT);
+        }
+    }
+
+    private static boolean intersects(Rectangle clip, int left, int top, int right, int bottom) {
+        return left < clip.x + clip.width && clip.x < right && top < clip.y + clip.height && clip.y < bottom;
+    }
+
+    // render into an offscreen image, a new one is created when target is null
+    public BufferedImage renderFrame(BufferedImage target) {
+        if (target == null) {
+            target = new BufferedImage(Math.max(1, camera.getWidth()), Math.max(1, camera.getHeight()), BufferedImage.TYPE_INT_ARGB);
+        }
+
+        Graphics2D graphics = target.createGraphics();
+
+        try {
+            renderFrame(graphics);
+        } finally {
+            graphics.dispose();
         }
 
+        return target;
+    }
+
+    // advance the simulation by one step of the loop's tick rate
+    public void tick() {
+        update(loop.getTickNanos());
+    }
+
+    // run ticks as fast as possible, returns simulated frames per second
+    // this fast forwards ticks / ticksPerSecond seconds of game time
+    public double simulate(int ticks) {
+        long startNanos = System.nanoTime();
+
+        for (int i = 0; i < ticks; i++) {
+            tick();
+        }
+
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+
+        return ticks * 1000000000.0 / elapsedNanos;
+    }
+
+    public GameLoop getLoop() {
+        return loop;
+    }
+
+    public FrameStats getStats() {
+        return stats;
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    // every update advances the clock by its step, running animations and characters move over keeping their elapsed time
+    synchronized public void setClock(ManualClock clock) {
+        long deltaMillis = clock.nanoTime() / 1000000L - this.clock.nanoTime() / 1000000L;
+
         for (Animation animation: animations) {
-            animation.render(graphics);
+            animation.rebase(clock);
         }
 
-        // check collision
-        collisionSectionManager.rebuild();
+        for (Character character: characters) {
+            character.shiftTime(deltaMillis);
+        }
 
-        for (Tile tile: tiles) {
-            if (tile.isCollisional()) {
-                collisionSectionManager.addToSection(tile);
+        this.clock = clock;
+    }
+
+    public TickScheduler getScheduler() {
+        return scheduler;
+    }
+
+    // run once on the game thread after delayMillis of game time
+    public TickScheduler.Task schedule(Runnable runnable, long delayMillis) {
+        return scheduler.schedule(runnable, toTicks(delayMillis));
+    }
+
+    // run on the game thread every periodMillis of game time until cancelled or the level changes
+    public TickScheduler.Task scheduleRepeating(Runnable runnable, long delayMillis, long periodMillis) {
+        return scheduler.scheduleRepeating(runnable, toTicks(delayMillis), Math.max(1, toTicks(periodMillis)));
+    }
+
+    private int toTicks(long millis) {
+        return (int)Math.max(0, Math.round(millis * 1000000.0 / loop.getTickNanos()));
+    }
+
+    // advance the simulation by one fixed step
+    protected void update(long dtNanos) {
+        long startNanos = System.nanoTime();
+
+        beforeFrame.run();
+        dispatchInput();
+        stats.record(FrameStats.INPUT, System.nanoTime() - startNanos);
+
+        updateFrame(dtNanos);
+        afterFrame.run();
+
+        stats.record(FrameStats.UPDATE, System.nanoTime() - startNanos);
+        stats.endFrame();
+    }
+
+    /*
+     * apply the queued key events, also while paused so a paused game can be restarted
+     *
+     * only the auto repeat of a held key collapses: a pressed event equal to the one that started the run,
+     * and the typed events of the same char, are dropped until another key or a release comes in between.
+     * everything else is dispatched in order, so different keys keep their sequence after a stall.
+     * listeners run outside the game lock and take it themselves when they change the world.
+     * */
+    private void dispatchInput() {
+        long runPressed = InputQueue.EMPTY;
+        long runTyped = InputQueue.EMPTY;
+        long event;
+
+        while ((event = input.poll()) != InputQueue.EMPTY) {
+            int type = InputQueue.typeOf(event);
+            char keyChar = InputQueue.keyCharOf(event);
+            int keyCode = InputQueue.keyCodeOf(event);
+
+            if (type == InputQueue.KEY_PRESSED) {
+                if (event == runPressed) {
+                    continue;
+                }
+
+                runPressed = event;
+                runTyped = InputQueue.EMPTY;
+            } else if (type == InputQueue.KEY_TYPED && runPressed != InputQueue.EMPTY
+                    && keyChar == InputQueue.keyCharOf(runPressed)) {
+                if (event == runTyped) {
+                    continue;
+                }
+
+                runTyped = event;
+            } else {
+                runPressed = InputQueue.EMPTY;
+                runTyped = InputQueue.EMPTY;
+            }
+
+            for (InputAdapter listener: inputListeners) {
+                switch (type) {
+                    case InputQueue.KEY_PRESSED:
+                        listener.keyPressed(keyChar, keyCode);
+                        break;
+                    case InputQueue.KEY_RELEASED:
+                        listener.keyReleased(keyChar, keyCode);
+                        break;
+                    default:
+                        listener.keyTyped(keyChar, keyCode);
+                        break;
+                }
+            }
+        }
+    }
+
+    synchronized private void updateFrame(long dtNanos) {
+        if (paused) {
+            return;
+        }
+
+        // game time only passes while the simulation runs, catch up steps each see their own time
+        clock.advance(dtNanos);
+        schedulerLagNanos += dtNanos;
+
+        // scheduled tasks see the state of the previous tick, one scheduler tick per step of game time
+        long schedulerNanos = System.nanoTime();
+
+        while (schedulerLagNanos >= loop.getTickNanos()) {
+            scheduler.tick();
+            schedulerLagNanos -= loop.getTickNanos();
+        }
+
+        long animationsNanos = System.nanoTime();
+        stats.record(FrameStats.SCHEDULER, animationsNanos - schedulerNanos);
+
+        // animation state
+        for (Character character: characters) {
+            character.update();
+        }
+
+        updateView();
+
+        for (Animation animation: animations) {
+            AnimationConfig before = animation.current;
+
+            animation.update();
+
+            // old and new bounds need a repaint when anything visible changed
+            AnimationConfig after = animation.current;
+
+            if (!isSameFrame(before, after)) {
+                markDirty(before);
+                markDirty(after);
             }
         }
 
+        long broadphaseNanos = System.nanoTime();
+        stats.record(FrameStats.ANIMATIONS, broadphaseNanos - animationsNanos);
+
+        // check collision, only components whose bounds changed are re-placed
         for (Character character: characters) {
-            collisionSectionManager.addToSection(character);
+            collisionSectionManager.updateSection(character);
         }
 
+        // animations far from the view do not collide
         for (Animation animation: animations) {
-            collisionSectionManager.addToSection(animation);
+            if (animation.getLeft() < activeRight && activeLeft < animation.getRight()
+                    && animation.getTop() < activeBottom && activeTop < animation.getBottom()) {
+                collisionSectionManager.updateSection(animation);
+            } else {
+                collisionSectionManager.removeFromSection(animation);
+            }
         }
 
+        long collisionsNanos = System.nanoTime();
+        stats.record(FrameStats.BROADPHASE, collisionsNanos - broadphaseNanos);
+
         collisionSectionManager.checkCollisions();
 
+        stats.record(FrameStats.COLLISIONS, System.nanoTime() - collisionsNanos);
+        stats.recordCollisions(collisionSectionManager);
+
+        // the overlay changes every frame, a hidden one leaves its area to repaint once
+        if (stats.isOverlayVisible() != statsShown) {
+            statsShown = !statsShown;
+            repaintAll = true;
+        } else if (statsShown) {
+            dirtyRegions.add(0, 0, STATS_WIDTH, (FrameStats.size() + 1) * STATS_LINE_HEIGHT + 6);
+        }
+
         if (pauseOnNextFrame) {
+            final ActionListener listener = pauseListener;
+            final CompletableFuture<Void> completion = pauseCompletion;
+
             paused = true;
             pauseOnNextFrame = false;
+            pauseListener = null;
+            pauseCompletion = null;
+            repaintAll = true;
+
+            afterFrame.add(new Runnable() {
+                @Override
+                public void run() {
+                    if (listener != null) {
+                        listener.actionPerformed(null);
+                    }
+
+                    completion.complete(null);
+                }
+            });
         }
     }
 
-    @Override
-    public void run() {
-        while (true) {
-            repaint();
+    // follow the first character and keep the chunks around the view loaded
+    private void updateView() {
+        if (world == null) {
+            return;
+        }
+
+        if (!characters.isEmpty()) {
+            Character character = characters.get(0);
+
+            if (camera.follow(character.getLeft(), character.getTop(), character.getRight(), character.getBottom(), cols * tileSize, rows * tileSize)) {
+                repaintAll = true;
+            }
+        }
+
+        int firstRow = camera.getY() / tileSize;
+        int firstCol = camera.getX() / tileSize;
+        int lastRow = (camera.getY() + camera.getHeight() - 1) / tileSize;
+        int lastCol = (camera.getX() + camera.getWidth() - 1) / tileSize;
+
+        staticLayer.setOrigin(firstRow, firstCol);
+        world.retain(firstRow - viewMargin, firstCol - viewMargin, lastRow + viewMargin, lastCol + viewMargin);
+
+        activeLeft = (firstCol - viewMargin) * tileSize;
+        activeTop = (firstRow - viewMargin) * tileSize;
+        activeRight = (lastCol + 1 + viewMargin) * tileSize;
+        activeBottom = (lastRow + 1 + viewMargin) * tileSize;
+    }
+
+    private static boolean isSameFrame(AnimationConfig config1, AnimationConfig config2) {
+        if (config1 == null || config2 == null) {
+            return config1 == config2;
         }
+
+        return config1.getImage() == config2.getImage()
+                && config1.getX() == config2.getX() && config1.getY() == config2.getY()
+                && config1.getWidth() == config2.getWidth() && config1.getHeight() == config2.getHeight();
+    }
+
+    /*
+     * request a render pass for the current state
+     *
+     * only the coalesced dirty regions are painted, each one with paintImmediately
+     * so swing does not merge distant regions into one large rectangle.
+     * */
+    protected void render() {
+        if (!paintPending.compareAndSet(false, true)) {
+            // the previous pass has not been painted yet, its regions keep accumulating
+            return;
+        }
+
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                paintPending.set(false);
+
+                boolean all;
+
+                synchronized (Game.this) {
+                    all = repaintAll;
+                    repaintAll = false;
+
+                    if (all) {
+                        dirtyRegions.clear();
+                    } else {
+                        dirtyRegions.drain(paintingRegions);
+                    }
+                }
+
+                if (all) {
+                    paintImmediately(0, 0, getWidth(), getHeight());
+                    return;
+                }
+
+                for (Rectangle region: paintingRegions) {
+                    paintImmediately(region);
+                }
+            }
+        });
     }
 }
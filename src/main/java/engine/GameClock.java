@@ -0,0 +1,11 @@
+package engine;
+
+/*
+ * time source of animations and characters
+ *
+ * a game owns a ManualClock and advances it by the step of every update, so animations, characters
+ * and scheduled tasks all follow game time. a SystemClock follows real time, for animations started on their own.
+ * */
+public interface GameClock {
+    long nanoTime();
+}
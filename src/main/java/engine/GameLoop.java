@@ -0,0 +1,109 @@
+package engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * fixed timestep loop
+ *
+ * the simulation advances in steps of exactly 1 / ticksPerSecond seconds, a frame is rendered
+ * after every batch of updates and the thread parks until the next step is due.
+ * when a frame runs long, at most maxUpdatesPerFrame steps are replayed to catch up,
+ * anything beyond that is dropped so a slow machine runs slower instead of spiralling.
+ * */
+public class GameLoop implements Runnable {
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private Game game;
+    private volatile long tickNanos;
+    private volatile int maxUpdatesPerFrame = 5;
+    private volatile boolean running = false;
+    private Thread thread;
+
+    public GameLoop(Game game, int ticksPerSecond) {
+        this.game = game;
+
+        setTicksPerSecond(ticksPerSecond);
+    }
+
+    public void setTicksPerSecond(int ticksPerSecond) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalArgumentException("ticks per second must be positive");
+        }
+
+        this.tickNanos = NANOS_PER_SECOND / ticksPerSecond;
+    }
+
+    public int getTicksPerSecond() {
+        return (int)(NANOS_PER_SECOND / tickNanos);
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    public void setMaxUpdatesPerFrame(int maxUpdatesPerFrame) {
+        this.maxUpdatesPerFrame = Math.max(1, maxUpdatesPerFrame);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long lag = 0;
+
+        while (running) {
+            long step = tickNanos;
+            long frameStart = System.nanoTime();
+
+            lag += frameStart - previous;
+            previous = frameStart;
+
+            // fixed updates
+            int updates = 0;
+
+            while (lag >= step && updates < maxUpdatesPerFrame) {
+                game.update(step);
+                lag -= step;
+                updates++;
+            }
+
+            // still behind after catching up, drop the backlog
+            if (lag >= step) {
+                lag %= step;
+            }
+
+            if (updates > 0) {
+                game.render();
+            }
+
+            // wait for the next step
+            long sleepNanos = step - lag - (System.nanoTime() - frameStart);
+
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package engine;
+
+import java.util.Arrays;
+
+/*
+ * log linear histogram of non negative values, in the spirit of HdrHistogram
+ *
+ * values below 64 have their own bucket, above that every power of two is split into 32 buckets,
+ * so a recorded value is off by less than 1 / 32 and recording is a couple of shifts.
+ * the whole long range fits in 1920 counters.
+ * */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * HALF + SUB_BUCKETS;
+
+    private long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long max = 0;
+    private long total = 0;
+
+    public synchronized void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts[indexOf(value)]++;
+        count++;
+        total += value;
+
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    // highest value equivalent to the bucket holding the given percentile, 0 when empty
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long)Math.ceil(count * Math.min(100, percentile) / 100));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+
+            if (seen >= target) {
+                return Math.min(max, highestEquivalent(i));
+            }
+        }
+
+        return max;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getMean() {
+        return count == 0 ? 0 : total * 1.0 / count;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        max = 0;
+        total = 0;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int)value;
+        }
+
+        // keep the top SUB_BUCKET_BITS bits, the shift picks the power of two
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+
+        return shift * HALF + (int)(value >>> shift);
+    }
+
+    private static long highestEquivalent(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int shift = index / HALF - 1;
+        long top = index - shift * HALF;
+
+        long highest = ((top + 1) << shift) - 1;
+
+        // the last bucket reaches past Long.MAX_VALUE
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+}
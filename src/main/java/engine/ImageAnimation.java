@@ -16,11 +16,10 @@ public class ImageAnimation extends Animation {
     }
 
     @Override
-    public AnimationConfig requestAnimationConfig(long pastMillSeconds) {
-        AnimationConfig config = new AnimationConfig(current);
+    public boolean evaluate(long pastMillSeconds, AnimationConfig out) {
+        out.set(current);
+        out.setImage(images.get((int)Math.round(pastMillSeconds / 100.0 * speed) % images.size()));
 
-        config.setImage(images.get((int)Math.round(pastMillSeconds / 100.0 * speed) % images.size()));
-
-        return config;
+        return true;
     }
 }
@@ -0,0 +1,12 @@
+package engine;
+
+/*
+ * key callbacks delivered on the game thread, once per tick, from the input queue
+ * */
+public abstract class InputAdapter {
+    public void keyPressed(char keyChar, int keyCode) {}
+
+    public void keyReleased(char keyChar, int keyCode) {}
+
+    public void keyTyped(char keyChar, int keyCode) {}
+}
@@ -0,0 +1,109 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * bounded lock free queue of key events
+ *
+ * awt listeners offer events packed into a long, the game thread polls them once per tick.
+ * every slot carries a sequence number (Vyukov's bounded queue), producers claim a slot with one cas
+ * and the single consumer never blocks them. a full queue drops the new event and counts it.
+ *
+ * 63       50 49  48 47           32 31                 0
+ * unused      type   key char          key code
+ * */
+public class InputQueue {
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final long EMPTY = -1;
+
+    public static final int KEY_PRESSED = 0;
+    public static final int KEY_RELEASED = 1;
+    public static final int KEY_TYPED = 2;
+
+    private int mask;
+    private long[] events;
+    private AtomicLongArray sequences;
+    private AtomicLong tail = new AtomicLong();
+    private AtomicLong dropped = new AtomicLong();
+    private long head = 0;
+
+    public InputQueue(int capacity) {
+        // sequence positions map to slots with position & mask
+        int size = Bits.ceilPowerOfTwo(capacity);
+
+        this.mask = size - 1;
+        this.events = new long[size];
+        this.sequences = new AtomicLongArray(size);
+
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public InputQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public static long encode(int type, char keyChar, int keyCode) {
+        return ((long)(type & 0x3) << 48) | ((long)keyChar << 32) | (keyCode & 0xFFFFFFFFL);
+    }
+
+    public static int typeOf(long event) {
+        return (int)(event >>> 48) & 0x3;
+    }
+
+    public static char keyCharOf(long event) {
+        return (char)(event >>> 32);
+    }
+
+    public static int keyCodeOf(long event) {
+        return (int)event;
+    }
+
+    // any thread, false when the queue is full
+    public boolean offer(long event) {
+        while (true) {
+            long position = tail.get();
+            int index = (int)(position & mask);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    events[index] = event;
+                    sequences.lazySet(index, position + 1);
+
+                    return true;
+                }
+            } else if (difference < 0) {
+                dropped.incrementAndGet();
+
+                return false;
+            }
+        }
+    }
+
+    // consumer thread only, EMPTY when nothing is published yet
+    public long poll() {
+        int index = (int)(head & mask);
+
+        if (sequences.get(index) != head + 1) {
+            return EMPTY;
+        }
+
+        long event = events[index];
+
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+
+        return event;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,46 @@
+package engine;
+
+/*
+ * a decoded level with its world, ready to be published by the game
+ *
+ * levels are built off the game thread, nothing here is visible to the loop or the renderer
+ * until Game swaps it in, so the chunks around the start can be loaded ahead of time.
+ * a level is published once, its tiles are changed in place while it is played.
+ * */
+public class Level {
+    private int index;
+    private LevelData levelData;
+    private CollisionSectionManager collisionSectionManager;
+    private TileWorld world;
+
+    Level(int index, LevelData levelData, CollisionSectionManager collisionSectionManager, TileWorld world) {
+        this.index = index;
+        this.levelData = levelData;
+        this.collisionSectionManager = collisionSectionManager;
+        this.world = world;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public LevelData getLevelData() {
+        return levelData;
+    }
+
+    public int getRows() {
+        return levelData.getRows();
+    }
+
+    public int getCols() {
+        return levelData.getCols();
+    }
+
+    CollisionSectionManager getCollisionSectionManager() {
+        return collisionSectionManager;
+    }
+
+    TileWorld getWorld() {
+        return world;
+    }
+}
@@ -0,0 +1,77 @@
+package engine;
+
+import java.nio.IntBuffer;
+
+/*
+ * encoded tiles of a level, one TileData int per cell in row major order
+ *
+ * this is the source chunks are streamed from, tile changes are written back
+ * so an evicted chunk comes back the way it was left.
+ * read only cells (a mapped level file) are copied on the first write.
+ * */
+public class LevelData {
+    private int rows;
+    private int cols;
+    private IntBuffer cells;
+
+    public LevelData(int rows, int cols, IntBuffer cells) {
+        if (cells.capacity() < rows * cols) {
+            throw new IllegalArgumentException("level data has " + cells.capacity() + " cells, expected " + rows * cols);
+        }
+
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = cells;
+    }
+
+    public LevelData(int rows, int cols) {
+        this(rows, cols, IntBuffer.allocate(rows * cols));
+    }
+
+    public static LevelData fromRows(int[][] encodedTilesData) {
+        int rows = encodedTilesData.length;
+        int cols = rows == 0 ? 0 : encodedTilesData[0].length;
+        int[] cells = new int[rows * cols];
+
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(encodedTilesData[row], 0, cells, row * cols, cols);
+        }
+
+        return new LevelData(rows, cols, IntBuffer.wrap(cells));
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int get(int row, int col) {
+        return cells.get(row * cols + col);
+    }
+
+    public void set(int row, int col, int encodedData) {
+        if (cells.isReadOnly()) {
+            IntBuffer copy = IntBuffer.allocate(cells.capacity());
+            cells.rewind();
+            copy.put(cells);
+            cells = copy;
+        }
+
+        cells.put(row * cols + col, encodedData);
+    }
+
+    public int[][] toRows() {
+        int[][] encodedTilesData = new int[rows][cols];
+
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                encodedTilesData[row][col] = get(row, col);
+            }
+        }
+
+        return encodedTilesData;
+    }
+}
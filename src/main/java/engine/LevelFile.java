@@ -0,0 +1,278 @@
+package engine;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/*
+ * binary .lvl format, little endian
+ *
+ * header  int magic "T2DL", short version, short flags, int rows, int cols
+ * body    rows * cols TileData ints in row major order, or with FLAG_RLE
+ *         (varint run length, int TileData) pairs
+ *
+ * a raw body is used as the level data in place, files are mapped read only and the level data
+ * copies the cells on its first write, so tile changes never reach the disk. files written by the old ObjectOutputStream editor are still read.
+ * */
+public class LevelFile {
+    public static final int MAGIC = 0x4C443254; // "T2DL" in file order
+    public static final short VERSION = 1;
+    public static final short FLAG_RLE = 1;
+    public static final int HEADER_BYTES = 16;
+
+    private static final int LEGACY_MAGIC = 0xACED;
+
+    // read a level from the class path, mapping it when it is a plain file
+    public static LevelData read(Class<?> base, String path) throws IOException {
+        URL url = base.getResource(path);
+
+        if (url == null) {
+            return null;
+        }
+
+        if (url.getProtocol().equals("file")) {
+            try {
+                return read(new File(url.toURI()));
+            } catch (URISyntaxException e) {
+                // fall through to the stream
+            }
+        }
+
+        InputStream is = url.openStream();
+
+        try {
+            return read(is);
+        } finally {
+            is.close();
+        }
+    }
+
+    public static LevelData read(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+            FileChannel channel = raf.getChannel();
+
+            // the mapping stays valid after the channel is closed
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    // read into the heap, for files that are rewritten afterwards: windows cannot truncate a file that is still mapped
+    public static LevelData readCopy(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+
+        try {
+            return read(is);
+        } finally {
+            is.close();
+        }
+    }
+
+    public static LevelData read(InputStream is) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int count;
+
+        while ((count = is.read(chunk)) != -1) {
+            bytes.write(chunk, 0, count);
+        }
+
+        return read(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    public static LevelData read(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        if (buffer.remaining() >= 2 && (buffer.getShort(buffer.position()) & 0xFFFF) == LEGACY_MAGIC) {
+            return readLegacy(buffer);
+        }
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("invalid level file format");
+        }
+
+        short version = buffer.getShort();
+        short flags = buffer.getShort();
+        int rows = buffer.getInt();
+        int cols = buffer.getInt();
+
+        if (version > VERSION) {
+            throw new IOException("unsupported level file version " + version);
+        }
+
+        if (rows < 0 || cols < 0 || (long)rows * cols > Integer.MAX_VALUE) {
+            throw new IOException("invalid level size " + rows + "x" + cols);
+        }
+
+        int cells = rows * cols;
+
+        if ((flags & FLAG_RLE) == 0) {
+            if (buffer.remaining() < cells * 4L) {
+                throw new IOException("truncated level file");
+            }
+
+            IntBuffer body = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            body.limit(cells);
+
+            return new LevelData(rows, cols, body.slice());
+        }
+
+        int[] data = new int[cells];
+        int cell = 0;
+
+        try {
+            while (cell < cells) {
+                int run = readVarint(buffer);
+                int encodedData = buffer.getInt();
+
+                if (run <= 0 || run > cells - cell) {
+                    throw new IOException("invalid run length " + run);
+                }
+
+                Arrays.fill(data, cell, cell + run, encodedData);
+                cell += run;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated level file");
+        }
+
+        return new LevelData(rows, cols, IntBuffer.wrap(data));
+    }
+
+    // run length encoding is picked when it is smaller than the raw body
+    public static void write(LevelData levelData, File file) throws IOException {
+        // encode before the file is truncated, the level data may be mapped from it
+        ByteBuffer buffer = encode(levelData);
+        FileOutputStream fos = new FileOutputStream(file);
+
+        try {
+            fos.getChannel().write(buffer);
+        } finally {
+            fos.close();
+        }
+    }
+
+    public static ByteBuffer encode(LevelData levelData) {
+        int rows = levelData.getRows();
+        int cols = levelData.getCols();
+        int cells = rows * cols;
+        int rleBytes = rleBytes(levelData);
+        boolean rle = rleBytes < cells * 4L;
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + (rle ? rleBytes : cells * 4))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort(rle ? FLAG_RLE : 0);
+        buffer.putInt(rows);
+        buffer.putInt(cols);
+
+        for (int cell = 0; cell < cells; ) {
+            int encodedData = levelData.get(cell / cols, cell % cols);
+
+            if (!rle) {
+                buffer.putInt(encodedData);
+                cell++;
+                continue;
+            }
+
+            int run = runLength(levelData, cell, encodedData);
+
+            writeVarint(buffer, run);
+            buffer.putInt(encodedData);
+            cell += run;
+        }
+
+        buffer.flip();
+
+        return buffer;
+    }
+
+    private static int rleBytes(LevelData levelData) {
+        int cells = levelData.getRows() * levelData.getCols();
+        int bytes = 0;
+
+        for (int cell = 0; cell < cells; ) {
+            int run = runLength(levelData, cell, levelData.get(cell / levelData.getCols(), cell % levelData.getCols()));
+
+            bytes += varintBytes(run) + 4;
+            cell += run;
+        }
+
+        return bytes;
+    }
+
+    private static int runLength(LevelData levelData, int from, int encodedData) {
+        int cols = levelData.getCols();
+        int cells = levelData.getRows() * cols;
+        int cell = from + 1;
+
+        while (cell < cells && levelData.get(cell / cols, cell % cols) == encodedData) {
+            cell++;
+        }
+
+        return cell - from;
+    }
+
+    private static LevelData readLegacy(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        try {
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+
+            return LevelData.fromRows((int[][])ois.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("invalid level file format");
+        } catch (ClassCastException e) {
+            throw new IOException("invalid level file format");
+        }
+    }
+
+    private static int readVarint(ByteBuffer buffer) throws IOException {
+        int value = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("invalid varint");
+    }
+
+    private static void writeVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte)value);
+    }
+
+    private static int varintBytes(int value) {
+        int bytes = 1;
+
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+
+        return bytes;
+    }
+}
@@ -24,18 +24,15 @@ public class LinearAnimation extends Animation {
     }
 
     @Override
-    public AnimationConfig requestAnimationConfig(long pastMillSeconds) {
-        AnimationConfig config = new AnimationConfig(current);
+    public boolean evaluate(long pastMillSeconds, AnimationConfig out) {
+        out.set(current);
+
         double step = (pastMillSeconds / 100.0 * speed) * directX;
 
-        config.setX((int)Math.round(step + from.getX()));
-        config.setY((int)Math.round(step * slope + from.getY()));
+        out.setX((int)Math.round(step + from.getX()));
+        out.setY((int)Math.round(step * slope + from.getY()));
 
         // check boundary
-        if (config.getX() * directX > endX || config.getY() * directY > endY) {
-            return null;
-        }
-
-        return config;
+        return !(out.getX() * directX > endX || out.getY() * directY > endY);
     }
 }
@@ -0,0 +1,30 @@
+package engine;
+
+/*
+ * clock advanced by hand, a game moves it by dtNanos on every update, in a window or headless,
+ * so a minute of game time can be simulated as fast as the updates run
+ * */
+public class ManualClock implements GameClock {
+    private volatile long nanos;
+
+    public ManualClock(long nanos) {
+        this.nanos = nanos;
+    }
+
+    public ManualClock() {
+        this(0);
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanos;
+    }
+
+    public void advance(long deltaNanos) {
+        nanos += deltaNanos;
+    }
+
+    public void set(long nanos) {
+        this.nanos = nanos;
+    }
+}
@@ -1,29 +1,37 @@
 package engine;
 
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 
 public class RotateAnimation extends Animation {
+    public static final int DEFAULT_STEPS = 64;
+
+    private RotationFrames frames;
+
     public RotateAnimation(BufferedImage image, int x, int y, int speed) {
+        this(image, x, y, speed, DEFAULT_STEPS);
+    }
+
+    // steps is the angular resolution of a full turn
+    public RotateAnimation(BufferedImage image, int x, int y, int speed, int steps) {
         super(new AnimationConfig(image, x, y,
                 image.getWidth(null),
                 image.getHeight(null)),
                 speed);
+
+        this.frames = RotationFrames.get(image, steps);
     }
 
     @Override
-    public AnimationConfig requestAnimationConfig(long pastMillSeconds) {
-        AnimationConfig config = new AnimationConfig(current);
+    public boolean evaluate(long pastMillSeconds, AnimationConfig out) {
+        out.set(current);
 
-        AffineTransform at = AffineTransform.getRotateInstance(Math.toRadians((pastMillSeconds / 100.0 * speed) % 360), config.getWidth() / 2.0, config.getHeight() / 2.0);
-        AffineTransformOp ao = new AffineTransformOp(at, AffineTransformOp.TYPE_BILINEAR);
-        BufferedImage rotatedImage = ao.filter(from.getImage(), null);
+        int index = frames.indexOf((pastMillSeconds / 100.0 * speed) % 360);
+        BufferedImage rotatedImage = frames.getFrame(index);
 
-        config.setImage(rotatedImage);
-        config.setWidth(rotatedImage.getWidth());
-        config.setHeight(rotatedImage.getHeight());
+        out.setImage(rotatedImage, frames.getMask(index));
+        out.setWidth(rotatedImage.getWidth());
+        out.setHeight(rotatedImage.getHeight());
 
-        return config;
+        return true;
     }
 }
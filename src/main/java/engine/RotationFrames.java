@@ -0,0 +1,79 @@
+package engine;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/*
+ * pre-rendered rotations of an image
+ *
+ * a full turn is split into a fixed number of steps, every step is rendered once together with its
+ * collision mask and shared by all animations rotating the same image at the same resolution.
+ * */
+public class RotationFrames {
+    private static final Map<BufferedImage, Map<Integer, RotationFrames>> cache =
+            Collections.synchronizedMap(new WeakHashMap<BufferedImage, Map<Integer, RotationFrames>>());
+
+    private BufferedImage[] frames;
+    private CollisionMask[] masks;
+
+    public static RotationFrames get(BufferedImage image, int steps) {
+        synchronized (cache) {
+            Map<Integer, RotationFrames> byStep = cache.get(image);
+
+            if (byStep == null) {
+                byStep = new HashMap<Integer, RotationFrames>();
+                cache.put(image, byStep);
+            }
+
+            RotationFrames rotationFrames = byStep.get(steps);
+
+            if (rotationFrames == null) {
+                rotationFrames = new RotationFrames(image, steps);
+                byStep.put(steps, rotationFrames);
+            }
+
+            return rotationFrames;
+        }
+    }
+
+    public RotationFrames(BufferedImage image, int steps) {
+        if (steps <= 0) {
+            throw new IllegalArgumentException("steps must be positive");
+        }
+
+        this.frames = new BufferedImage[steps];
+        this.masks = new CollisionMask[steps];
+
+        for (int i = 0; i < steps; i++) {
+            AffineTransform at = AffineTransform.getRotateInstance(Math.toRadians(i * 360.0 / steps), image.getWidth() / 2.0, image.getHeight() / 2.0);
+            AffineTransformOp ao = new AffineTransformOp(at, AffineTransformOp.TYPE_BILINEAR);
+
+            frames[i] = ao.filter(image, null);
+            masks[i] = CollisionMask.get(frames[i]);
+        }
+    }
+
+    public int getSteps() {
+        return frames.length;
+    }
+
+    // nearest step of the given angle
+    public int indexOf(double degree) {
+        int index = (int)Math.round(degree * frames.length / 360.0) % frames.length;
+
+        return index < 0 ? index + frames.length : index;
+    }
+
+    public BufferedImage getFrame(int index) {
+        return frames[index];
+    }
+
+    public CollisionMask getMask(int index) {
+        return masks[index];
+    }
+}
@@ -0,0 +1,164 @@
+package engine;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/*
+ * background and tiles baked into one image
+ *
+ * the layer covers rows x cols cells starting at the origin cell, which follows the camera.
+ * a frame blits the layer once, only cells marked by tile moves, removals and image changes are redrawn,
+ * moving the origin redraws everything.
+ * the layer lives in a VolatileImage when a GraphicsConfiguration is available
+ * and falls back to a BufferedImage otherwise (headless, offscreen rendering).
+ * */
+public class StaticLayer {
+    private static final Color TRANSPARENT = new Color(0, 0, 0, 0);
+
+    private Game game;
+    private int rows;
+    private int cols;
+    private int tileSize;
+    private int originRow = 0;
+    private int originCol = 0;
+
+    private VolatileImage volatileImage;
+    private BufferedImage bufferedImage;
+
+    // dirty cells
+    private boolean allDirty = true;
+    private boolean[] isDirty;
+    private int[] dirtyCells;
+    private int dirtyCount = 0;
+
+    public StaticLayer(Game game, int rows, int cols) {
+        this.game = game;
+        this.rows = rows;
+        this.cols = cols;
+        this.tileSize = game.getTileSize();
+        this.isDirty = new boolean[rows * cols];
+        this.dirtyCells = new int[rows * cols];
+    }
+
+    public void setOrigin(int row, int col) {
+        if (row != originRow || col != originCol) {
+            originRow = row;
+            originCol = col;
+            allDirty = true;
+        }
+    }
+
+    // cell in world coordinates
+    public void markDirty(int row, int col) {
+        row -= originRow;
+        col -= originCol;
+
+        if (row < 0 || col < 0 || row >= rows || col >= cols || allDirty) {
+            return;
+        }
+
+        int cell = row * cols + col;
+
+        if (!isDirty[cell]) {
+            isDirty[cell] = true;
+            dirtyCells[dirtyCount++] = cell;
+        }
+    }
+
+    public void markAllDirty() {
+        allDirty = true;
+    }
+
+    public void render(Graphics graphics, GraphicsConfiguration configuration) {
+        int width = Math.max(1, cols * tileSize);
+        int height = Math.max(1, rows * tileSize);
+
+        if (configuration == null) {
+            if (bufferedImage == null) {
+                bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                allDirty = true;
+            }
+
+            redraw(bufferedImage);
+            graphics.drawImage(bufferedImage, originCol * tileSize, originRow * tileSize, null);
+
+            return;
+        }
+
+        do {
+            int status = volatileImage == null ? VolatileImage.IMAGE_INCOMPATIBLE : volatileImage.validate(configuration);
+
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                volatileImage = configuration.createCompatibleVolatileImage(width, height, Transparency.OPAQUE);
+                allDirty = true;
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                allDirty = true;
+            }
+
+            redraw(volatileImage);
+            graphics.drawImage(volatileImage, originCol * tileSize, originRow * tileSize, null);
+
+            // surface lost while drawing, rebuild it and draw again
+            if (volatileImage.contentsLost()) {
+                allDirty = true;
+            }
+        } while (volatileImage.contentsLost());
+    }
+
+    private void redraw(Image target) {
+        if (!allDirty && dirtyCount == 0) {
+            return;
+        }
+
+        Graphics2D graphics = (Graphics2D)target.getGraphics();
+
+        try {
+            if (allDirty) {
+                for (int row = 0; row < rows; row++) {
+                    for (int col = 0; col < cols; col++) {
+                        drawCell(graphics, row, col);
+                    }
+                }
+            } else {
+                for (int i = 0; i < dirtyCount; i++) {
+                    drawCell(graphics, dirtyCells[i] / cols, dirtyCells[i] % cols);
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        for (int i = 0; i < dirtyCount; i++) {
+            isDirty[dirtyCells[i]] = false;
+        }
+
+        dirtyCount = 0;
+        allDirty = false;
+    }
+
+    private void drawCell(Graphics2D graphics, int row, int col) {
+        int x = col * tileSize;
+        int y = row * tileSize;
+        Tile tile = game.peekTile(originRow + row, originCol + col);
+
+        // replace whatever the cell held before
+        graphics.setComposite(AlphaComposite.Src);
+
+        if (tile == null) {
+            graphics.setColor(TRANSPARENT);
+            graphics.fillRect(x, y, tileSize, tileSize);
+            graphics.setComposite(AlphaComposite.SrcOver);
+
+            return;
+        }
+
+        TextureAtlas.drawImage(graphics, game.getImage(0), x, y, tileSize, tileSize);
+        graphics.setComposite(AlphaComposite.SrcOver);
+
+        // tiles render at their world position, shift them into the layer
+        graphics.translate(-originCol * tileSize, -originRow * tileSize);
+        tile.render(graphics);
+        graphics.translate(originCol * tileSize, originRow * tileSize);
+    }
+}
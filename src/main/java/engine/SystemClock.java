@@ -0,0 +1,8 @@
+package engine;
+
+public class SystemClock implements GameClock {
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,150 @@
+package engine;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/*
+ * packs sprites into a few large display compatible pages
+ *
+ * images are placed on shelves, left to right and top to bottom, a new page is started when one is full.
+ * drawing every sprite from the same pages lets java2d keep them accelerated instead of
+ * uploading dozens of unmanaged images.
+ * pages are charged to the asset cache budget, once it has no room for another page new sprites stay unpacked.
+ * */
+public class TextureAtlas {
+    public static final int DEFAULT_PAGE_SIZE = 1024;
+
+    // keeps neighbours from bleeding in when a region is scaled
+    private static final int PADDING = 1;
+
+    private int pageSize;
+    private GraphicsConfiguration configuration;
+    private AssetCache budget;
+    private ArrayList<BufferedImage> pages = new ArrayList<BufferedImage>();
+    private HashMap<String, AtlasImage> images = new HashMap<String, AtlasImage>();
+
+    // current shelf
+    private int shelfX = 0;
+    private int shelfY = 0;
+    private int shelfHeight = 0;
+
+    public TextureAtlas(int pageSize, AssetCache budget) {
+        this.pageSize = pageSize;
+        this.budget = budget;
+
+        if (!GraphicsEnvironment.isHeadless()) {
+            this.configuration = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        }
+    }
+
+    public TextureAtlas(AssetCache budget) {
+        this(DEFAULT_PAGE_SIZE, budget);
+    }
+
+    public TextureAtlas() {
+        this(DEFAULT_PAGE_SIZE, null);
+    }
+
+    synchronized public AtlasImage get(String key) {
+        return images.get(key);
+    }
+
+    // images larger than a page, or without budget left for a new page, are not packed and returned as they are
+    synchronized public BufferedImage add(String key, BufferedImage source) {
+        AtlasImage image = images.get(key);
+
+        if (image != null) {
+            return image;
+        }
+
+        int width = source.getWidth() + PADDING;
+        int height = source.getHeight() + PADDING;
+
+        if (width > pageSize || height > pageSize) {
+            return source;
+        }
+
+        // next shelf, or next page
+        if (pages.isEmpty() || shelfX + width > pageSize) {
+            shelfX = 0;
+            shelfY += shelfHeight;
+            shelfHeight = 0;
+        }
+
+        if (pages.isEmpty() || shelfY + height > pageSize) {
+            if (budget != null && !budget.charge(getPageBytes())) {
+                return source;
+            }
+
+            pages.add(createPage());
+            shelfX = 0;
+            shelfY = 0;
+            shelfHeight = 0;
+        }
+
+        BufferedImage page = pages.get(pages.size() - 1);
+        Graphics2D graphics = page.createGraphics();
+
+        graphics.setComposite(AlphaComposite.Src);
+        graphics.drawImage(source, shelfX, shelfY, null);
+        graphics.dispose();
+
+        image = new AtlasImage(page, shelfX, shelfY, source.getWidth(), source.getHeight());
+        images.put(key, image);
+
+        shelfX += width;
+        shelfHeight = Math.max(shelfHeight, height);
+
+        return image;
+    }
+
+    synchronized public int getPageCount() {
+        return pages.size();
+    }
+
+    public long getPageBytes() {
+        return (long)pageSize * pageSize * 4;
+    }
+
+    synchronized public int getSize() {
+        return images.size();
+    }
+
+    private BufferedImage createPage() {
+        if (configuration != null) {
+            return configuration.createCompatibleImage(pageSize, pageSize, Transparency.TRANSLUCENT);
+        }
+
+        return new BufferedImage(pageSize, pageSize, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    // same as Graphics.drawImage with a source rectangle, atlas images are drawn from their page
+    public static boolean drawImage(Graphics graphics, BufferedImage image,
+                                    int dx1, int dy1, int dx2, int dy2,
+                                    int sx1, int sy1, int sx2, int sy2) {
+        if (image instanceof AtlasImage) {
+            AtlasImage atlasImage = (AtlasImage)image;
+            int x = atlasImage.getPageX();
+            int y = atlasImage.getPageY();
+
+            // keep the source inside the region so neighbours never show
+            sx2 = Math.min(sx2, image.getWidth());
+            sy2 = Math.min(sy2, image.getHeight());
+
+            return graphics.drawImage(atlasImage.getPage(), dx1, dy1, dx2, dy2, x + sx1, y + sy1, x + sx2, y + sy2, null);
+        }
+
+        return graphics.drawImage(image, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null);
+    }
+
+    // same as Graphics.drawImage scaled to width x height
+    public static boolean drawImage(Graphics graphics, BufferedImage image, int x, int y, int width, int height) {
+        if (image instanceof AtlasImage) {
+            return drawImage(graphics, image, x, y, x + width, y + height, 0, 0, image.getWidth(), image.getHeight());
+        }
+
+        return graphics.drawImage(image, x, y, width, height, null);
+    }
+}
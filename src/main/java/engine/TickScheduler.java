@@ -0,0 +1,151 @@
+package engine;
+
+import java.util.ArrayList;
+
+/*
+ * hashed timing wheel driven by the game tick
+ *
+ * a task lands in slot (deadline % slots) and waits there for the number of full turns left,
+ * so scheduling and cancelling are O(1) and advancing only looks at one slot per tick.
+ * tasks run on the game thread inside update, lined up with the simulation instead of a wall clock,
+ * and they stop while the game is paused. cancelled tasks are dropped when their slot comes up.
+ * */
+public class TickScheduler {
+    public static final int DEFAULT_SLOTS = 256;
+
+    private ArrayList<Task>[] wheel;
+    private int mask;
+    private long tick = 0;
+    private int size = 0;
+    private ArrayList<Task> due = new ArrayList<Task>();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TickScheduler(int slots) {
+        // a deadline finds its slot with deadline & mask
+        int capacity = Bits.ceilPowerOfTwo(slots);
+
+        this.wheel = new ArrayList[capacity];
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < capacity; i++) {
+            wheel[i] = new ArrayList<Task>();
+        }
+    }
+
+    public TickScheduler() {
+        this(DEFAULT_SLOTS);
+    }
+
+    // run once after delayTicks ticks, 0 runs on the next tick
+    public synchronized Task schedule(Runnable runnable, int delayTicks) {
+        return add(new Task(runnable, 0), delayTicks);
+    }
+
+    // run after delayTicks ticks and then every periodTicks ticks until cancelled
+    public synchronized Task scheduleRepeating(Runnable runnable, int delayTicks, int periodTicks) {
+        if (periodTicks <= 0) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+
+        return add(new Task(runnable, periodTicks), delayTicks);
+    }
+
+    // advance one tick and run the tasks that became due
+    public void tick() {
+        synchronized (this) {
+            tick++;
+
+            ArrayList<Task> slot = wheel[(int)(tick & mask)];
+
+            for (int i = slot.size() - 1; i >= 0; i--) {
+                Task task = slot.get(i);
+
+                if (task.cancelled || task.deadline <= tick) {
+                    // swap remove, order inside a slot does not matter
+                    slot.set(i, slot.get(slot.size() - 1));
+                    slot.remove(slot.size() - 1);
+                    size--;
+
+                    if (!task.cancelled) {
+                        due.add(task);
+                    }
+                }
+            }
+        }
+
+        // run outside the lock, tasks may schedule or cancel
+        for (int i = 0; i < due.size(); i++) {
+            Task task = due.get(i);
+
+            if (task.cancelled) {
+                continue;
+            }
+
+            task.runnable.run();
+
+            if (task.periodTicks > 0) {
+                synchronized (this) {
+                    if (!task.cancelled) {
+                        add(task, task.periodTicks - 1);
+                    }
+                }
+            }
+        }
+
+        due.clear();
+    }
+
+    // cancel everything, used when a level is unloaded
+    public synchronized void cancelAll() {
+        for (ArrayList<Task> slot: wheel) {
+            for (Task task: slot) {
+                task.cancelled = true;
+            }
+
+            slot.clear();
+        }
+
+        size = 0;
+    }
+
+    public synchronized long getTick() {
+        return tick;
+    }
+
+    // scheduled tasks, cancelled ones count until their slot is visited
+    public synchronized int size() {
+        return size;
+    }
+
+    private Task add(Task task, int delayTicks) {
+        task.deadline = tick + 1 + Math.max(0, delayTicks);
+        wheel[(int)(task.deadline & mask)].add(task);
+        size++;
+
+        return task;
+    }
+
+    public static class Task {
+        private Runnable runnable;
+        private int periodTicks;
+        private long deadline;
+        private volatile boolean cancelled = false;
+
+        Task(Runnable runnable, int periodTicks) {
+            this.runnable = runnable;
+            this.periodTicks = periodTicks;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isRepeating() {
+            return periodTicks > 0;
+        }
+    }
+}
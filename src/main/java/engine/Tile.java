@@ -7,14 +7,17 @@ import java.awt.image.ImageObserver;
 public class Tile implements CollisionComponent {
     private Game game;
     private BufferedImage image;
+    private int imageIndex;
     private boolean isCollisional;
     private boolean isMovable;
     private int row;
     private int col;
+    private boolean isPinned = false;
 
-    Tile(Game game, BufferedImage image, boolean isCollisional, int row, int col) {
+    Tile(Game game, BufferedImage image, int imageIndex, boolean isCollisional, int row, int col) {
         this.game = game;
         this.image = image;
+        this.imageIndex = imageIndex;
         this.isCollisional = isCollisional;
         this.row = row;
         this.col = col;
@@ -28,8 +31,21 @@ public class Tile implements CollisionComponent {
         return this.image;
     }
 
+    public int getImageIndex() {
+        return imageIndex;
+    }
+
     public void setImage(BufferedImage image) {
+        int index = game.indexOfImage(image);
+
+        // images outside of the map pool keep the previous index in the level data
+        if (index != -1) {
+            this.imageIndex = index;
+        }
+
         this.image = image;
+
+        game.onTileChanged(this);
     }
 
     public boolean isMovable() {
@@ -41,8 +57,21 @@ public class Tile implements CollisionComponent {
     }
 
     public void setPosition(int row, int col) {
+        int fromRow = this.row;
+        int fromCol = this.col;
+
         this.row = row;
         this.col = col;
+
+        game.onTileMoved(this, fromRow, fromCol);
+    }
+
+    boolean isPinned() {
+        return isPinned;
+    }
+
+    void setPinned(boolean pinned) {
+        isPinned = pinned;
     }
 
     public int getRow() {
@@ -55,8 +84,11 @@ public class Tile implements CollisionComponent {
 
     public void remove() {
         this.image = game.getImage(0);
+        this.imageIndex = 0;
         this.isCollisional = false;
         this.isMovable = false;
+
+        game.onTileRemoved(this);
     }
 
     @Override
@@ -86,6 +118,6 @@ public class Tile implements CollisionComponent {
     public void render(Graphics graphics) {
         int tileSize = game.getTileSize();
 
-        graphics.drawImage(image, getLeft(), getTop(), tileSize, tileSize, null);
+        TextureAtlas.drawImage(graphics, image, getLeft(), getTop(), tileSize, tileSize);
     }
 }
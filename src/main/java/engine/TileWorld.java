@@ -0,0 +1,263 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/*
+ * chunked tile store
+ *
+ * tiles only exist for chunks around the camera, they are created from the level data when a chunk
+ * comes into range and dropped when it leaves, collisional tiles enter and leave the broadphase with their chunk.
+ * tiles handed out by getTilesByImageIndex are pinned: they keep their identity (and flags like movable)
+ * while their chunk is unloaded, every other change is written back to the level data.
+ * */
+public class TileWorld {
+    public static final int DEFAULT_CHUNK_SIZE = 32;
+
+    private Game game;
+    private LevelData levelData;
+    private CollisionSectionManager collisionSectionManager;
+    private int rows;
+    private int cols;
+    private int chunkSize;
+    private int chunkRows;
+    private int chunkCols;
+    private Chunk[] chunks;
+    private ArrayList<Chunk> loadedChunks = new ArrayList<Chunk>();
+    private HashMap<Integer, Tile> pinnedTiles = new HashMap<Integer, Tile>();
+    private HashMap<Integer, ArrayList<Tile>> tilesByImageIndex = new HashMap<Integer, ArrayList<Tile>>();
+
+    public TileWorld(Game game, LevelData levelData, CollisionSectionManager collisionSectionManager, int chunkSize) {
+        this.game = game;
+        this.levelData = levelData;
+        this.collisionSectionManager = collisionSectionManager;
+        this.rows = levelData.getRows();
+        this.cols = levelData.getCols();
+        this.chunkSize = chunkSize;
+        this.chunkRows = (rows + chunkSize - 1) / chunkSize;
+        this.chunkCols = (cols + chunkSize - 1) / chunkSize;
+        this.chunks = new Chunk[chunkRows * chunkCols];
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public LevelData getLevelData() {
+        return levelData;
+    }
+
+    public int getLoadedChunkCount() {
+        return loadedChunks.size();
+    }
+
+    // loads the chunk of the cell if needed
+    public Tile getTile(int row, int col) {
+        if (!contains(row, col)) {
+            return null;
+        }
+
+        Chunk chunk = loadChunk(row / chunkSize, col / chunkSize);
+
+        return chunk.tiles[chunk.indexOf(row, col)];
+    }
+
+    // null when the chunk of the cell is not loaded
+    public Tile peekTile(int row, int col) {
+        if (!contains(row, col)) {
+            return null;
+        }
+
+        Chunk chunk = chunks[(row / chunkSize) * chunkCols + col / chunkSize];
+
+        return chunk == null ? null : chunk.tiles[chunk.indexOf(row, col)];
+    }
+
+    public boolean isLoaded(int row, int col) {
+        return contains(row, col) && chunks[(row / chunkSize) * chunkCols + col / chunkSize] != null;
+    }
+
+    public ArrayList<Tile> getTilesByImageIndex(int index) {
+        ArrayList<Tile> tiles = tilesByImageIndex.get(index);
+
+        if (tiles != null) {
+            return tiles;
+        }
+
+        // scan the encoded cells, only matching tiles are created
+        tiles = new ArrayList<Tile>();
+
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if ((levelData.get(row, col) & 0x3FFFFFFF) == index) {
+                    tiles.add(pin(row, col));
+                }
+            }
+        }
+
+        tilesByImageIndex.put(index, tiles);
+
+        return tiles;
+    }
+
+    /*
+     * keep chunks intersecting the given cell range loaded,
+     * chunks more than one chunk away from it are evicted so walking along a border does not thrash
+     * */
+    public void retain(int minRow, int minCol, int maxRow, int maxCol) {
+        int minChunkRow = Math.max(0, minRow / chunkSize);
+        int minChunkCol = Math.max(0, minCol / chunkSize);
+        int maxChunkRow = Math.min(chunkRows - 1, Math.max(0, maxRow) / chunkSize);
+        int maxChunkCol = Math.min(chunkCols - 1, Math.max(0, maxCol) / chunkSize);
+
+        for (int i = loadedChunks.size() - 1; i >= 0; i--) {
+            Chunk chunk = loadedChunks.get(i);
+
+            if (chunk.chunkRow < minChunkRow - 1 || chunk.chunkRow > maxChunkRow + 1
+                    || chunk.chunkCol < minChunkCol - 1 || chunk.chunkCol > maxChunkCol + 1) {
+                evictChunk(chunk);
+                loadedChunks.remove(i);
+            }
+        }
+
+        for (int chunkRow = minChunkRow; chunkRow <= maxChunkRow; chunkRow++) {
+            for (int chunkCol = minChunkCol; chunkCol <= maxChunkCol; chunkCol++) {
+                loadChunk(chunkRow, chunkCol);
+            }
+        }
+    }
+
+    // a swap moves both tiles, so only clear a cell that still points to the moving tile
+    void onTileMoved(Tile tile, int fromRow, int fromCol) {
+        if (contains(fromRow, fromCol)) {
+            Chunk from = chunks[(fromRow / chunkSize) * chunkCols + fromCol / chunkSize];
+
+            if (from != null && from.tiles[from.indexOf(fromRow, fromCol)] == tile) {
+                from.tiles[from.indexOf(fromRow, fromCol)] = null;
+            }
+
+            if (tile.isPinned() && pinnedTiles.get(fromRow * cols + fromCol) == tile) {
+                pinnedTiles.remove(fromRow * cols + fromCol);
+            }
+        }
+
+        int row = tile.getRow();
+        int col = tile.getCol();
+
+        if (!contains(row, col)) {
+            return;
+        }
+
+        Chunk to = loadChunk(row / chunkSize, col / chunkSize);
+        to.tiles[to.indexOf(row, col)] = tile;
+
+        if (tile.isPinned()) {
+            pinnedTiles.put(row * cols + col, tile);
+        }
+
+        onTileChanged(tile);
+    }
+
+    void onTileChanged(Tile tile) {
+        if (contains(tile.getRow(), tile.getCol())) {
+            levelData.set(tile.getRow(), tile.getCol(), new TileData(tile.getImageIndex(), tile.isCollisional()).encodedData);
+        }
+    }
+
+    private Tile pin(int row, int col) {
+        int cell = row * cols + col;
+        Tile tile = pinnedTiles.get(cell);
+
+        if (tile == null) {
+            tile = peekTile(row, col);
+
+            if (tile == null) {
+                tile = createTile(row, col);
+            }
+
+            tile.setPinned(true);
+            pinnedTiles.put(cell, tile);
+        }
+
+        return tile;
+    }
+
+    private Tile createTile(int row, int col) {
+        TileData tileData = new TileData(levelData.get(row, col));
+
+        return new Tile(game, game.getImage(tileData.imageIndex), tileData.imageIndex, tileData.isCollisional, row, col);
+    }
+
+    private Chunk loadChunk(int chunkRow, int chunkCol) {
+        Chunk chunk = chunks[chunkRow * chunkCols + chunkCol];
+
+        if (chunk != null) {
+            return chunk;
+        }
+
+        chunk = new Chunk(chunkRow, chunkCol);
+
+        int maxRow = Math.min(rows, (chunkRow + 1) * chunkSize);
+        int maxCol = Math.min(cols, (chunkCol + 1) * chunkSize);
+
+        for (int row = chunkRow * chunkSize; row < maxRow; row++) {
+            for (int col = chunkCol * chunkSize; col < maxCol; col++) {
+                Tile tile = pinnedTiles.get(row * cols + col);
+
+                if (tile == null) {
+                    tile = createTile(row, col);
+                }
+
+                chunk.tiles[chunk.indexOf(row, col)] = tile;
+
+                // tiles are static, insert them once per chunk load
+                if (tile.isCollisional()) {
+                    collisionSectionManager.addToSection(tile);
+                }
+            }
+        }
+
+        chunks[chunkRow * chunkCols + chunkCol] = chunk;
+        loadedChunks.add(chunk);
+
+        return chunk;
+    }
+
+    private void evictChunk(Chunk chunk) {
+        for (Tile tile: chunk.tiles) {
+            if (tile != null) {
+                collisionSectionManager.removeFromSection(tile);
+            }
+        }
+
+        chunks[chunk.chunkRow * chunkCols + chunk.chunkCol] = null;
+    }
+
+    private boolean contains(int row, int col) {
+        return row >= 0 && col >= 0 && row < rows && col < cols;
+    }
+
+    private class Chunk {
+        int chunkRow;
+        int chunkCol;
+        Tile[] tiles;
+
+        Chunk(int chunkRow, int chunkCol) {
+            this.chunkRow = chunkRow;
+            this.chunkCol = chunkCol;
+            this.tiles = new Tile[chunkSize * chunkSize];
+        }
+
+        int indexOf(int row, int col) {
+            return (row - chunkRow * chunkSize) * chunkSize + (col - chunkCol * chunkSize);
+        }
+    }
+}
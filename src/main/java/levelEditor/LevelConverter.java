@@ -0,0 +1,54 @@
+package levelEditor;
+
+import engine.LevelData;
+import engine.LevelFile;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * rewrites .lvl files (or every .lvl file of a directory) in the binary level format
+ *
+ * usage: LevelConverter resources/assets/levels
+ * */
+public class LevelConverter {
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("usage: LevelConverter <file or directory>...");
+
+            return;
+        }
+
+        for (String arg: args) {
+            File file = new File(arg);
+
+            if (file.isDirectory()) {
+                File[] files = file.listFiles();
+
+                if (files == null) {
+                    continue;
+                }
+
+                for (File level: files) {
+                    if (level.getName().endsWith(".lvl")) {
+                        convert(level);
+                    }
+                }
+            } else {
+                convert(file);
+            }
+        }
+    }
+
+    private static void convert(File file) {
+        try {
+            long before = file.length();
+            LevelData levelData = LevelFile.readCopy(file);
+            LevelFile.write(levelData, file);
+
+            System.out.println(file + ": " + before + " -> " + file.length() + " bytes");
+        } catch (IOException e) {
+            System.out.println(file + ": " + e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package levelEditor;
 
+import engine.LevelData;
+import engine.LevelFile;
 import engine.TileData;
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -112,19 +114,17 @@ public class LevelEditor extends JPanel {
     }
 
     private void save() {
-        int[][] encodedTilesData = new int[rows][cols];
+        LevelData levelData = new LevelData(rows, cols);
 
         for (int row = 0; row < rows; row++) {
             for (int col = 0; col < cols; col++) {
-                encodedTilesData[row][col] = new TileData(tileImageIndices[row][col],
-                        is.collisional[tileImageIndices[row][col]] == 1).encodedData;
+                levelData.set(row, col, new TileData(tileImageIndices[row][col],
+                        is.collisional[tileImageIndices[row][col]] == 1).encodedData);
             }
         }
 
         try {
-            FileOutputStream fos = new FileOutputStream("0.lvl");
-            ObjectOutputStream oos = new ObjectOutputStream(fos);
-            oos.writeObject(encodedTilesData);
+            LevelFile.write(levelData, new File("0.lvl"));
         } catch (IOException e) {
             System.out.println("write file failed");
         }
@@ -132,18 +132,15 @@ public class LevelEditor extends JPanel {
 
     private void load() {
         try {
-            FileInputStream fis = new FileInputStream("0.lvl");
-            ObjectInputStream ois = new ObjectInputStream(fis);
+            LevelData levelData = LevelFile.readCopy(new File("0.lvl"));
 
-            int[][] encodedTilesData = (int[][])ois.readObject();
-
-            if (encodedTilesData.length > 0) {
-                int[][] imageIndices = new int[encodedTilesData.length][encodedTilesData[0].length];
+            if (levelData.getRows() > 0) {
+                int[][] imageIndices = new int[levelData.getRows()][levelData.getCols()];
                 int[] collisional = new int[images.size()];
 
-                for (int row = 0; row < encodedTilesData.length; row++) {
-                    for (int col = 0; col < encodedTilesData[row].length; col++) {
-                        TileData tileData = new TileData(encodedTilesData[row][col]);
+                for (int row = 0; row < levelData.getRows(); row++) {
+                    for (int col = 0; col < levelData.getCols(); col++) {
+                        TileData tileData = new TileData(levelData.get(row, col));
                         imageIndices[row][col] = tileData.imageIndex;
                         collisional[tileData.imageIndex] = tileData.isCollisional ? 1 : 0;
                     }
@@ -151,16 +148,15 @@ public class LevelEditor extends JPanel {
 
                 this.tileImageIndices = imageIndices;
                 is.collisional = collisional;
-                rows = encodedTilesData.length;
-                cols = encodedTilesData[0].length;
+                rows = levelData.getRows();
+                cols = levelData.getCols();
 
                 this.setBounds();
                 repaint();
             }
         } catch (IOException e) {
             System.out.println("read file failed");
-        } catch (ClassNotFoundException e) {
-            System.out.println("invalid file format");
+            System.out.println(e.getMessage());
         }
     }
 
@@ -0,0 +1,117 @@
+package levelEditor;
+
+import engine.LevelData;
+import engine.LevelFile;
+import engine.TileData;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/*
+ * random levels of any size for load testing, the same seed always gives the same level
+ *
+ * every cell is floor, wall, box, cannon or coin with the configured densities,
+ * using the image indices of the shipped map: 0 floor, 1 box, 2 / 3 cannons, 4 - 16 walls, 17 coin.
+ * the top left cell stays free for the character.
+ *
+ * usage: LevelGenerator <rows> <cols> <file> [walls boxes cannons coins seed]
+ * */
+public class LevelGenerator {
+    public static final int FLOOR = 0;
+    public static final int BOX = 1;
+    public static final int RIGHT_CANNON = 2;
+    public static final int LEFT_CANNON = 3;
+    public static final int FIRST_WALL = 4;
+    public static final int LAST_WALL = 16;
+    public static final int COIN = 17;
+
+    private double wallDensity = 0.2;
+    private double boxDensity = 0.03;
+    private double cannonDensity = 0.005;
+    private double coinDensity = 0.01;
+    private long seed = 1;
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("usage: LevelGenerator <rows> <cols> <file> [walls boxes cannons coins seed]");
+
+            return;
+        }
+
+        LevelGenerator generator = new LevelGenerator();
+
+        try {
+            if (args.length > 7) {
+                generator.setSeed(Long.parseLong(args[7]));
+            }
+
+            if (args.length > 6) {
+                generator.setDensities(Double.parseDouble(args[3]), Double.parseDouble(args[4]),
+                        Double.parseDouble(args[5]), Double.parseDouble(args[6]));
+            }
+
+            File file = new File(args[2]);
+            LevelFile.write(generator.generate(Integer.parseInt(args[0]), Integer.parseInt(args[1])), file);
+
+            System.out.println(file + ": " + args[0] + "x" + args[1] + ", " + file.length() + " bytes");
+        } catch (NumberFormatException e) {
+            System.out.println("invalid number: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            System.out.println("write file failed");
+            System.out.println(e.getMessage());
+        }
+    }
+
+    // fractions of all cells, the rest is floor
+    public void setDensities(double walls, double boxes, double cannons, double coins) {
+        if (walls < 0 || boxes < 0 || cannons < 0 || coins < 0 || walls + boxes + cannons + coins > 1) {
+            throw new IllegalArgumentException("densities must be positive and add up to at most 1");
+        }
+
+        this.wallDensity = walls;
+        this.boxDensity = boxes;
+        this.cannonDensity = cannons;
+        this.coinDensity = coins;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public LevelData generate(int rows, int cols) {
+        if (rows <= 0 || cols <= 0 || (long)rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("invalid level size " + rows + "x" + cols);
+        }
+
+        Random random = new Random(seed);
+        LevelData levelData = new LevelData(rows, cols);
+
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                double value = random.nextDouble();
+                TileData tileData;
+
+                if (row == 0 && col == 0) {
+                    tileData = new TileData(FLOOR, false);
+                } else if ((value -= wallDensity) < 0) {
+                    tileData = new TileData(FIRST_WALL + random.nextInt(LAST_WALL - FIRST_WALL + 1), true);
+                } else if ((value -= boxDensity) < 0) {
+                    tileData = new TileData(BOX, true);
+                } else if ((value -= cannonDensity) < 0) {
+                    tileData = new TileData(random.nextBoolean() ? LEFT_CANNON : RIGHT_CANNON, true);
+                } else if ((value -= coinDensity) < 0) {
+                    tileData = new TileData(COIN, false);
+                } else {
+                    tileData = new TileData(FLOOR, false);
+                }
+
+                levelData.set(row, col, tileData.encodedData);
+            }
+        }
+
+        return levelData;
+    }
+}
@@ -0,0 +1,84 @@
+package levelEditor;
+
+import engine.*;
+import engine.Character;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Random;
+
+/*
+ * headless load test: a generated level crowded with bullets and spinning coins
+ *
+ * half of the animations are LinearAnimation bullets crossing the map, half are ImageAnimation coins,
+ * placed around the start ("view", where they collide) or over the whole map ("map").
+ * the game clock is manual, so every run simulates the same game time and prints the frame stats.
+ *
+ * usage: StressScenario [rows cols thousands ticks view|map seed]
+ * */
+public class StressScenario {
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int cols = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int animations = (args.length > 2 ? Integer.parseInt(args[2]) : 2) * 1000;
+        int ticks = args.length > 3 ? Integer.parseInt(args[3]) : 600;
+        boolean aroundView = args.length <= 4 || args[4].equals("view");
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+
+        Game game = new Game("/assets/", 40, true);
+        LevelGenerator generator = new LevelGenerator();
+
+        generator.setSeed(seed);
+
+        if (!game.loadLevel(generator.generate(rows, cols))) {
+            System.out.println("load generated level failed");
+
+            return;
+        }
+
+        game.addCharacter(new Character(game, "monkey/"), 0, 0);
+        spawn(game, animations, aroundView, seed);
+
+        double ticksPerSecond = game.simulate(ticks);
+        FrameStats stats = game.getStats();
+
+        System.out.println(String.format("%dx%d, %d animations, %d ticks at %.0f ticks/s",
+                rows, cols, animations, ticks, ticksPerSecond));
+
+        for (int i = 0; i < FrameStats.size(); i++) {
+            Histogram histogram = stats.getHistogram(i);
+            double unit = FrameStats.isPhase(i) ? 1000.0 : 1;
+
+            System.out.println(String.format("%-19s p50 %10.1f  p99 %10.1f  max %10.1f%s", FrameStats.nameOf(i),
+                    histogram.getPercentile(50) / unit, histogram.getPercentile(99) / unit, histogram.getMax() / unit,
+                    FrameStats.isPhase(i) ? " us" : ""));
+        }
+
+        System.exit(0);
+    }
+
+    public static void spawn(Game game, int count, boolean aroundView, long seed) {
+        Random random = new Random(seed);
+        int tileSize = game.getTileSize();
+        int width = game.getWorld().getCols() * tileSize;
+        int height = game.getWorld().getRows() * tileSize;
+        int areaWidth = aroundView ? Math.min(width, game.getCamera().getWidth()) : width;
+        int areaHeight = aroundView ? Math.min(height, game.getCamera().getHeight()) : height;
+        BufferedImage bullet = game.loadImage("animation/bullet.png", 45, true);
+        ArrayList<BufferedImage> coins = game.loadImages("coin/");
+
+        for (int i = 0; i < count; i++) {
+            int x = random.nextInt(Math.max(1, areaWidth - tileSize));
+            int y = random.nextInt(Math.max(1, areaHeight - tileSize));
+
+            if (i % 2 == 0) {
+                // left to right or back, across the whole map
+                int endX = random.nextBoolean() ? width : -tileSize;
+
+                game.addAnimation(new LinearAnimation(bullet, x, y, endX == x ? x + 1 : endX, y, 8));
+            } else {
+                game.addAnimation(new ImageAnimation(coins, x, y, 1));
+            }
+        }
+    }
+}